@@ -0,0 +1,144 @@
+package com.github.bitfexl.javachess.bench;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bitboard backed Board against the previous
+ * HashMap&lt;Coordinates, Piece&gt; storage (see MapBoard) over
+ * the position corpus: square lookups along rays, legal move
+ * generation and check detection.
+ * Each invocation runs the operation once per corpus position.
+ * The bitboard operations work on a copy of the position, so no
+ * attack information is cached from the previous invocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {-1, 1}, {1, -1}, {-1, -1}
+    };
+
+    /**
+     * A position, implemented by both storages.
+     */
+    private interface Position {
+        Object get(int file, int rank);
+
+        int generateLegal(int[] moves);
+
+        boolean isInCheck();
+    }
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    @Param({"bitboard", "hashmap"})
+    public String storage;
+
+    private Position[] positions;
+
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setup() {
+        Board[] boards = Corpus.load(phase);
+        positions = new Position[boards.length];
+        for (int i=0; i<boards.length; i++) {
+            positions[i] = switch (storage) {
+                case "bitboard" -> bitboard(boards[i]);
+                case "hashmap" -> hashmap(new MapBoard(boards[i]));
+                default -> throw new IllegalArgumentException("Unknown storage '" + storage + "'.");
+            };
+        }
+    }
+
+    private static Position bitboard(Board board) {
+        Board copy = new Board(true);
+        return new Position() {
+            @Override
+            public Object get(int file, int rank) {
+                return board.get(file, rank);
+            }
+
+            @Override
+            public int generateLegal(int[] moves) {
+                board.copyTo(copy);
+                return MoveGenerator.generateLegal(copy, copy.getSideToMove(), moves, 0);
+            }
+
+            @Override
+            public boolean isInCheck() {
+                board.copyTo(copy);
+                return copy.isInCheck(copy.getSideToMove());
+            }
+        };
+    }
+
+    private static Position hashmap(MapBoard board) {
+        return new Position() {
+            @Override
+            public Object get(int file, int rank) {
+                return board.get(file, rank);
+            }
+
+            @Override
+            public int generateLegal(int[] moves) {
+                return board.generateLegal(board.getSideToMove(), moves);
+            }
+
+            @Override
+            public boolean isInCheck() {
+                return board.isInCheck(board.getSideToMove());
+            }
+        };
+    }
+
+    /**
+     * Walks every ray from every piece until it is blocked,
+     * the access pattern of the previous line of sight checks.
+     */
+    @Benchmark
+    public void scanRays(Blackhole bh) {
+        for (Position position : positions) {
+            for (int file=1; file<=8; file++) {
+                for (int rank=1; rank<=8; rank++) {
+                    if (position.get(file, rank) == null) {
+                        continue;
+                    }
+
+                    for (int[] d : DIRECTIONS) {
+                        for (int f=file+d[0], r=rank+d[1]; Board.checkInBounds(f) && Board.checkInBounds(r); f+=d[0], r+=d[1]) {
+                            if (position.get(f, r) != null) {
+                                bh.consume(f);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void generateLegal(Blackhole bh) {
+        for (Position position : positions) {
+            bh.consume(position.generateLegal(moves));
+        }
+    }
+
+    @Benchmark
+    public void isInCheck(Blackhole bh) {
+        for (Position position : positions) {
+            bh.consume(position.isInCheck());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.bitfexl.javachess.bench;
+
+import com.github.bitfexl.javachess.game.*;
+import com.github.bitfexl.javachess.pieces.Piece;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot Board operations over the position corpus.
+ * Each invocation runs the operation once per corpus position.
+ * The check and mate tests run on a fresh copy (see copyTo),
+ * so no attack information is cached from the previous invocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardOperationsBenchmark {
+    @Param({"opening", "middlegame", "endgame", "check"})
+    public String phase;
+
+    private Board[] boards;
+
+    private Move[] firstMoves;
+
+    private final Board target = new Board(true);
+
+    @Setup
+    public void setup() {
+        boards = Corpus.load(phase);
+        firstMoves = new Move[boards.length];
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int i=0; i<boards.length; i++) {
+            int count = MoveGenerator.generateLegal(boards[i], boards[i].getSideToMove(), moves, 0);
+            firstMoves[i] = count > 0 ? Move.of(moves[0]) : null;
+        }
+    }
+
+    @Benchmark
+    public void moveUndo(Blackhole bh) {
+        for (int i=0; i<boards.length; i++) {
+            if (firstMoves[i] != null) {
+                boards[i].move(firstMoves[i]);
+                bh.consume(boards[i].undo());
+            }
+        }
+    }
+
+    @Benchmark
+    public void get(Blackhole bh) {
+        for (Board board : boards) {
+            for (int file=1; file<=8; file++) {
+                for (int rank=1; rank<=8; rank++) {
+                    bh.consume(board.get(file, rank));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void copyTo(Blackhole bh) {
+        for (Board board : boards) {
+            board.copyTo(target);
+            bh.consume(target);
+        }
+    }
+
+    @Benchmark
+    public void isInCheck(Blackhole bh) {
+        for (Board board : boards) {
+            board.copyTo(target);
+            bh.consume(target.isInCheck(target.getSideToMove()));
+        }
+    }
+
+    @Benchmark
+    public void isCheckMate(Blackhole bh) {
+        for (Board board : boards) {
+            board.copyTo(target);
+            bh.consume(target.isCheckMate(target.getSideToMove()));
+        }
+    }
+
+    @Benchmark
+    public void isStaleMate(Blackhole bh) {
+        for (Board board : boards) {
+            board.copyTo(target);
+            bh.consume(target.isStaleMate(target.getSideToMove()));
+        }
+    }
+
+    @Benchmark
+    public void getCoordinates(Blackhole bh) {
+        for (Board board : boards) {
+            bh.consume(board.getCoordinates(Piece.class, board.getSideToMove()));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.bitfexl.javachess.bench;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Fen;
+
+import java.util.List;
+
+/**
+ * Benchmark positions grouped by game phase.
+ */
+public final class Corpus {
+    public static final List<String> OPENING = List.of(
+            Fen.INITIAL,
+            "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 2",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+            "rnbqkb1r/pppp1ppp/5n2/4p3/2B1P3/8/PPPP1PPP/RNBQK1NR w KQkq - 2 3"
+    );
+
+    public static final List<String> MIDDLEGAME = List.of(
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 8",
+            "2rq1rk1/pb1nbppp/1p2pn2/2pp4/2PP4/1PN1PN2/PB2BPPP/2RQ1RK1 w - - 0 11"
+    );
+
+    public static final List<String> ENDGAME = List.of(
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "8/8/4k3/8/2R5/8/4K3/8 w - - 0 1",
+            "8/5pk1/6p1/8/3P4/6P1/5PK1/8 w - - 0 1",
+            "4k3/8/8/3q4/8/8/3Q4/4K3 w - - 0 1"
+    );
+
+    // side to move in check (with and without escape) or stalemated
+    public static final List<String> CHECK = List.of(
+            "rnbqkbnr/ppp2ppp/3p4/1B2p3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3",
+            "4k3/8/8/8/8/8/4q3/4K3 w - - 0 1",
+            "r1bqkb1r/pppp1Qpp/2n2n2/4p3/2B1P3/8/PPPP1PPP/RNB1K1NR b KQkq - 0 4",
+            "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3",
+            "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1",
+            "k7/8/1Q6/8/8/8/8/7K b - - 0 1"
+    );
+
+    private Corpus() { }
+
+    /**
+     * Load the positions of a phase.
+     * @param phase "opening", "middlegame", "endgame" or "check".
+     * @return New boards, one per position.
+     */
+    public static Board[] load(String phase) {
+        List<String> fens = switch (phase) {
+            case "opening" -> OPENING;
+            case "middlegame" -> MIDDLEGAME;
+            case "endgame" -> ENDGAME;
+            case "check" -> CHECK;
+            default -> throw new IllegalArgumentException("Unknown phase '" + phase + "'.");
+        };
+
+        Board[] boards = new Board[fens.size()];
+        for (int i=0; i<boards.length; i++) {
+            boards[i] = new Board(true);
+            Fen.load(boards[i], fens.get(i));
+        }
+        return boards;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.bitfexl.javachess.bench;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Fen;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fen parsing into a reused board, from strings and from a
+ * buffer of lines, and fen writing.
+ * Each invocation handles every corpus position once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FenBenchmark {
+    private String[] fens;
+
+    private ByteBuffer lines;
+
+    private final Board board = new Board(true);
+
+    @Setup
+    public void setup() {
+        List<String> all = new ArrayList<>();
+        all.addAll(Corpus.OPENING);
+        all.addAll(Corpus.MIDDLEGAME);
+        all.addAll(Corpus.ENDGAME);
+        fens = all.toArray(new String[0]);
+        lines = ByteBuffer.wrap(String.join("\n", all).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public void loadString(Blackhole bh) {
+        for (String fen : fens) {
+            Fen.load(board, fen);
+            bh.consume(board.hash());
+        }
+    }
+
+    @Benchmark
+    public void loadBuffer(Blackhole bh) {
+        lines.rewind();
+        while (Fen.load(board, lines)) {
+            bh.consume(board.hash());
+        }
+    }
+
+    @Benchmark
+    public void write(Blackhole bh) {
+        for (String fen : fens) {
+            Fen.load(board, fen);
+            bh.consume(Fen.toString(board));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.bitfexl.javachess.bench;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The board storage before bitboards, the baseline of BoardBenchmark:
+ * a HashMap&lt;Coordinates, Piece&gt; with a new key per access, move
+ * generation by walking the map square by square and check detection
+ * by generating the moves of every enemy piece, like the previous
+ * Board and pieces. Moves are (from &lt;&lt; 6 | to) square indices;
+ * castling, en passant and promotion are left out, they do not
+ * depend on the storage.
+ */
+final class MapBoard {
+    /**
+     * Coordinates before the bitboard board: checked bounds
+     * and a boxing Objects.hash() per hashCode() call.
+     */
+    private static final class Key {
+        private final int file;
+        private final int rank;
+
+        private Key(int file, int rank) {
+            Board.checkInBoundsException(file);
+            Board.checkInBoundsException(rank);
+            this.file = file;
+            this.rank = rank;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return file == that.file && rank == that.rank;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(file, rank);
+        }
+    }
+
+    private static final int[][] KNIGHT = {
+            {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}
+    };
+
+    private static final int[][] KING = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {-1, 1}, {1, -1}, {-1, -1}
+    };
+
+    private static final int[][] BISHOP = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+    private static final int[][] ROOK = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private final Map<Key, Piece> map = new HashMap<>();
+
+    private final Color sideToMove;
+
+    /**
+     * Copy the pieces of a board.
+     */
+    MapBoard(Board board) {
+        for (int square=0; square<64; square++) {
+            if (board.get(square) != null) {
+                map.put(new Key(Bitboards.file(square), Bitboards.rank(square)), board.get(square));
+            }
+        }
+        sideToMove = board.getSideToMove();
+    }
+
+    Color getSideToMove() {
+        return sideToMove;
+    }
+
+    Piece get(int file, int rank) {
+        return map.get(new Key(file, rank));
+    }
+
+    /**
+     * Checks if a player is in check: does any enemy piece move onto the king.
+     */
+    boolean isInCheck(Color color) {
+        int[] moves = new int[64];
+        for (Map.Entry<Key, Piece> entry : map.entrySet()) {
+            Piece piece = entry.getValue();
+            if (piece.getColor() == color) {
+                continue;
+            }
+
+            int count = pieceMoves(entry.getKey().file, entry.getKey().rank, piece, moves, 0);
+            for (int i=0; i<count; i++) {
+                int to = moves[i] & 63;
+                Piece king = get(Bitboards.file(to), Bitboards.rank(to));
+                if (king != null && king.getType() == Piece.KING && king.getColor() == color) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generate the moves that do not leave the own king in check:
+     * every move is played on the map and checked with isInCheck().
+     * @return The number of moves written.
+     */
+    int generateLegal(Color color, int[] moves) {
+        Key[] own = map.keySet().stream().filter(k -> map.get(k).getColor() == color).toArray(Key[]::new);
+
+        int count = 0;
+        for (Key from : own) {
+            count = pieceMoves(from.file, from.rank, map.get(from), moves, count);
+        }
+
+        int legal = 0;
+        for (int i=0; i<count; i++) {
+            Key from = new Key(Bitboards.file(moves[i] >>> 6), Bitboards.rank(moves[i] >>> 6));
+            Key to = new Key(Bitboards.file(moves[i] & 63), Bitboards.rank(moves[i] & 63));
+
+            Piece piece = map.remove(from);
+            Piece captured = map.put(to, piece);
+            if (!isInCheck(color)) {
+                moves[legal++] = moves[i];
+            }
+            map.put(from, piece);
+            if (captured != null) {
+                map.put(to, captured);
+            } else {
+                map.remove(to);
+            }
+        }
+        return legal;
+    }
+
+    private int pieceMoves(int file, int rank, Piece piece, int[] moves, int count) {
+        return switch (piece.getType()) {
+            case Piece.PAWN -> pawnMoves(file, rank, piece.getColor(), moves, count);
+            case Piece.KNIGHT -> steps(file, rank, piece.getColor(), KNIGHT, false, moves, count);
+            case Piece.BISHOP -> steps(file, rank, piece.getColor(), BISHOP, true, moves, count);
+            case Piece.ROOK -> steps(file, rank, piece.getColor(), ROOK, true, moves, count);
+            case Piece.QUEEN -> steps(file, rank, piece.getColor(), KING, true, moves, count);
+            default -> steps(file, rank, piece.getColor(), KING, false, moves, count);
+        };
+    }
+
+    private int steps(int file, int rank, Color color, int[][] directions, boolean slide, int[] moves, int count) {
+        int from = Bitboards.square(file, rank);
+        for (int[] d : directions) {
+            for (int f=file+d[0], r=rank+d[1]; Board.checkInBounds(f) && Board.checkInBounds(r); f+=d[0], r+=d[1]) {
+                Piece target = get(f, r);
+                if (target == null || target.getColor() != color) {
+                    moves[count++] = from << 6 | Bitboards.square(f, r);
+                }
+                if (target != null || !slide) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int pawnMoves(int file, int rank, Color color, int[] moves, int count) {
+        int from = Bitboards.square(file, rank);
+        int forward = color == Color.WHITE ? 1 : -1;
+        int next = rank + forward;
+        if (!Board.checkInBounds(next)) {
+            return count;
+        }
+
+        if (get(file, next) == null) {
+            moves[count++] = from << 6 | Bitboards.square(file, next);
+            int start = color == Color.WHITE ? 2 : 7;
+            if (rank == start && get(file, next + forward) == null) {
+                moves[count++] = from << 6 | Bitboards.square(file, next + forward);
+            }
+        }
+        for (int f=file-1; f<=file+1; f+=2) {
+            if (Board.checkInBounds(f)) {
+                Piece target = get(f, next);
+                if (target != null && target.getColor() != color) {
+                    moves[count++] = from << 6 | Bitboards.square(f, next);
+                }
+            }
+        }
+        return count;
+    }
+}
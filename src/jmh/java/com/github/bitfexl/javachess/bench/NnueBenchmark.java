@@ -0,0 +1,99 @@
+package com.github.bitfexl.javachess.bench;
+
+import com.github.bitfexl.javachess.eval.NnueEvaluator;
+import com.github.bitfexl.javachess.eval.NnueNetwork;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The network evaluator with incremental accumulator updates
+ * (move, evaluate, undo) against a full accumulator refresh
+ * per evaluation. Each invocation evaluates every legal move
+ * of every corpus position once, evals reports evaluations/s.
+ * Uses a random network of the hidden size, or the network file
+ * if one is given (-p network=file).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NnueBenchmark {
+    /**
+     * Counts evaluations, reported as a rate next to the score.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Evals {
+        public long evals;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            evals = 0;
+        }
+    }
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    @Param({"256"})
+    public int hidden;
+
+    @Param({""})
+    public String network;
+
+    private Board[] boards;
+
+    private NnueEvaluator[] evaluators;
+
+    private int[][] moves;
+
+    private int[] counts;
+
+    @Setup
+    public void setup() throws IOException {
+        NnueNetwork net = network.isEmpty() ? NnueNetwork.random(hidden, 42) : NnueNetwork.load(Path.of(network));
+
+        boards = Corpus.load(phase);
+        evaluators = new NnueEvaluator[boards.length];
+        moves = new int[boards.length][MoveGenerator.MAX_MOVES];
+        counts = new int[boards.length];
+        for (int i=0; i<boards.length; i++) {
+            counts[i] = MoveGenerator.generateLegal(boards[i], boards[i].getSideToMove(), moves[i], 0);
+            evaluators[i] = new NnueEvaluator(net);
+            evaluators[i].attach(boards[i]);
+        }
+    }
+
+    @Benchmark
+    public void incremental(Evals counter, Blackhole bh) {
+        for (int i=0; i<boards.length; i++) {
+            for (int m=0; m<counts[i]; m++) {
+                boards[i].move(moves[i][m]);
+                bh.consume(evaluators[i].evaluate(boards[i]));
+                boards[i].undoMove();
+            }
+            counter.evals += counts[i];
+        }
+    }
+
+    @Benchmark
+    public void refresh(Evals counter, Blackhole bh) {
+        for (int i=0; i<boards.length; i++) {
+            for (int m=0; m<counts[i]; m++) {
+                boards[i].move(moves[i][m]);
+                evaluators[i].refresh(boards[i]);
+                bh.consume(evaluators[i].evaluate(boards[i]));
+                boards[i].undoMove();
+            }
+            counter.evals += counts[i];
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.bitfexl.javachess.bench;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Coordinates;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.pieces.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Piece.getTrueValidMoves per piece class over the position corpus.
+ * Each invocation generates the moves of every piece of the class.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PieceMovesBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    @Param({"Pawn", "Knight", "Bishop", "Rook", "Queen", "King"})
+    public String piece;
+
+    private Board[] boards;
+
+    private Coordinates[] coordinates;
+
+    @Setup
+    public void setup() {
+        Class<? extends Piece> pieceClass = switch (piece) {
+            case "Pawn" -> Pawn.class;
+            case "Knight" -> Knight.class;
+            case "Bishop" -> Bishop.class;
+            case "Rook" -> Rook.class;
+            case "Queen" -> Queen.class;
+            case "King" -> King.class;
+            default -> throw new IllegalArgumentException("Unknown piece '" + piece + "'.");
+        };
+
+        List<Board> boardList = new ArrayList<>();
+        List<Coordinates> coordinatesList = new ArrayList<>();
+        for (Board board : Corpus.load(phase)) {
+            for (Color color : Color.values()) {
+                for (Coordinates c : board.getCoordinates(pieceClass, color)) {
+                    boardList.add(board);
+                    coordinatesList.add(c);
+                }
+            }
+        }
+
+        boards = boardList.toArray(new Board[0]);
+        coordinates = coordinatesList.toArray(new Coordinates[0]);
+    }
+
+    @Benchmark
+    public void getTrueValidMoves(Blackhole bh) {
+        for (int i=0; i<boards.length; i++) {
+            bh.consume(boards[i].get(coordinates[i]).getTrueValidMoves(boards[i], coordinates[i]));
+        }
+    }
+}
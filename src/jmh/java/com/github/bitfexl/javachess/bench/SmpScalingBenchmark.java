@@ -0,0 +1,90 @@
+package com.github.bitfexl.javachess.bench;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.search.LazySmp;
+import com.github.bitfexl.javachess.search.SearchLimits;
+import com.github.bitfexl.javachess.search.SearchResult;
+import com.github.bitfexl.javachess.search.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to depth of the Lazy SMP search per thread count.
+ * Each invocation searches every middlegame and endgame corpus
+ * position to the depth, with a fresh table per position;
+ * nodes reports the searched nodes of all threads.
+ * Speedup: time with 1 thread / time with n threads.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SmpScalingBenchmark {
+    private static final int HASH_MB = 64;
+
+    /**
+     * Counts searched nodes per invocation.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"7"})
+    public int depth;
+
+    private Board[] boards;
+
+    private LazySmp[] searches;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Board[] middlegame = Corpus.load("middlegame");
+        Board[] endgame = Corpus.load("endgame");
+        boards = new Board[middlegame.length + endgame.length];
+        System.arraycopy(middlegame, 0, boards, 0, middlegame.length);
+        System.arraycopy(endgame, 0, boards, middlegame.length, endgame.length);
+    }
+
+    @Setup(Level.Invocation)
+    public void startSearches() {
+        searches = new LazySmp[boards.length];
+        for (int i=0; i<boards.length; i++) {
+            searches[i] = new LazySmp(new TranspositionTable(HASH_MB), threads);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdownSearches() {
+        for (LazySmp search : searches) {
+            search.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void timeToDepth(Nodes counter, Blackhole bh) {
+        for (int i=0; i<boards.length; i++) {
+            SearchResult result = searches[i].search(boards[i], SearchLimits.depth(depth));
+            if (result.getDepth() != depth && !result.isMate()) {
+                throw new IllegalStateException("Search did not reach depth " + depth + ".");
+            }
+            for (long nodes : searches[i].getThreadNodes()) {
+                counter.nodes += nodes;
+            }
+            bh.consume(result);
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.github.bitfexl.javachess;
 
 import com.github.bitfexl.javachess.game.Color;
 import com.github.bitfexl.javachess.game.*;
-import com.github.bitfexl.javachess.pieces.King;
 import com.github.bitfexl.javachess.pieces.Pawn;
 import com.github.bitfexl.javachess.pieces.Piece;
+import com.github.bitfexl.javachess.search.Engine;
+import com.github.bitfexl.javachess.search.SearchLimits;
+import com.github.bitfexl.javachess.ui.AnalysisService;
 import com.github.bitfexl.javachess.ui.ChessPanel;
 import com.github.bitfexl.javachess.ui.PromotionOverlay;
 import com.github.bitfexl.javachess.ui.ResizeHandler;
@@ -22,6 +24,8 @@ public class JavaChess {
 
     private final Dimension BTN_DIMENSION = new Dimension(100, 20);
 
+    private final long ENGINE_TIME_MILLIS = 1000;
+
     private ResizeHandler resizeHandler;
 
     private Piece selectedPiece;
@@ -34,6 +38,27 @@ public class JavaChess {
 
     private com.github.bitfexl.javachess.game.Color nextPlayer;
 
+    private final Engine engine = new Engine();
+
+    private AnalysisService analysis;
+
+    /**
+     * The analysis of the current position, null: not done yet;
+     */
+    private AnalysisService.Analysis latest;
+
+    /**
+     * The player the engine plays, null: engine off;
+     */
+    private com.github.bitfexl.javachess.game.Color engineColor;
+
+    /**
+     * Incremented to discard results of running engine searches.
+     */
+    private int engineRequest;
+
+    private boolean awaitingPromotion;
+
     public void run() {
         JFrame window = new JFrame("Test");
         window.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
@@ -45,9 +70,18 @@ public class JavaChess {
         JButton btnUndo = new JButton("Undo");
         btnUndo.setMaximumSize(BTN_DIMENSION);
         btnUndo.addActionListener(e -> {
+            stopEngine();
+            if (cancelPromotion()) {
+                clearGui();
+                return;
+            }
             if (board.undo() != null) {
                 nextPlayer = nextPlayer.opponent();
             }
+            // undo the engine move too, back to the own move
+            if (nextPlayer == engineColor && board.undo() != null) {
+                nextPlayer = nextPlayer.opponent();
+            }
             clearGui();
         });
         buttonPanel.add(btnUndo);
@@ -76,10 +110,36 @@ public class JavaChess {
         });
         buttonPanel.add(btnResize);
 
+        JToggleButton btnEngine = new JToggleButton("Engine");
+        btnEngine.setMaximumSize(BTN_DIMENSION);
+        btnEngine.addActionListener(e -> {
+            if (btnEngine.isSelected()) {
+                // engine takes over the player to move
+                engineColor = nextPlayer;
+                postMove();
+            } else {
+                engineColor = null;
+                stopEngine();
+            }
+        });
+        buttonPanel.add(btnEngine);
+
+        JToggleButton btnAnalyze = new JToggleButton("Analyze");
+        btnAnalyze.setMaximumSize(BTN_DIMENSION);
+        btnAnalyze.addActionListener(e -> {
+            analysis.setEvaluation(btnAnalyze.isSelected());
+        });
+        buttonPanel.add(btnAnalyze);
+
         chessPanel = new ChessPanel();
         chessPanel.setOnClick(this::onClick);
         chessPanel.setPreferredSize(new Dimension(400, 400));
 
+        Engine analysisEngine = new Engine(16, 1);
+        analysisEngine.setTablebases(engine.getTablebases());
+        analysis = new AnalysisService(chessPanel, analysisEngine);
+        analysis.setListener(this::onAnalysis);
+
         newGame();
 
         window.add(buttonPanel);
@@ -91,6 +151,8 @@ public class JavaChess {
     }
 
     private void newGame() {
+        stopEngine();
+        awaitingPromotion = false;
         board.reset();
         nextPlayer = Color.WHITE;
         chessPanel.setBlackPov(false);
@@ -98,6 +160,10 @@ public class JavaChess {
     }
 
     private void onClick(int file, int rank) {
+        if (nextPlayer == engineColor) {
+            return; // engine is thinking
+        }
+
         Piece clickedPiece = board.get(file, rank);
 
         chessPanel.clearMarkers();
@@ -120,7 +186,11 @@ public class JavaChess {
         // get possible moves
         if (!moved && clickedPiece != null && clickedPiece.getColor() == nextPlayer) {
             selectedPiece = clickedPiece;
-            moves = clickedPiece.getTrueValidMoves(board, new Coordinates(file, rank));
+            if (latest != null) {
+                moves = latest.getMoves(file, rank);
+            } else {
+                moves = clickedPiece.getTrueValidMoves(board, new Coordinates(file, rank));
+            }
             chessPanel.setMarker(file, rank, ChessPanel.Marker.SELECTED);
         }
 
@@ -132,9 +202,11 @@ public class JavaChess {
             return false;
         }
 
+        awaitingPromotion = true;
         chessPanel.setOverlay(new PromotionOverlay(selectedPiece.getColor()) {
             @Override
             protected void pieceSelected(Piece piece) {
+                awaitingPromotion = false;
                 chessPanel.setOverlay(null);
                 board.move(new PromotionMove(move, piece));
                 postMove();
@@ -144,6 +216,20 @@ public class JavaChess {
         return true;
     }
 
+    /**
+     * Take back a promotion move whose piece has not been selected yet
+     * (the move is not played, only the player has changed).
+     * @return true: a promotion was pending, false: nothing to cancel;
+     */
+    private boolean cancelPromotion() {
+        if (!awaitingPromotion) {
+            return false;
+        }
+        awaitingPromotion = false;
+        nextPlayer = nextPlayer.opponent();
+        return true;
+    }
+
     private Move moveTo(int file, int rank) {
         if (moves == null) {
             return null;
@@ -160,31 +246,74 @@ public class JavaChess {
 
     private void postMove() {
         displayMoves();
-        displayCheck();
-
-        if (board.isCheckMate(nextPlayer)) {
-            chessPanel.setOverlay(new TextOverlay("Game Over! " + nextPlayer.opponent() + " won!"));
-        } else if (board.isStaleMate(nextPlayer)) {
-            chessPanel.setOverlay(new TextOverlay("Game Over! Stalemate!"));
-        }
-
+        analyze();
         updateGui();
     }
 
-    private void displayCheck() {
-        if (board.isInCheck(Color.WHITE)) {
-            Coordinates whiteKing = board.getCoordinates(King.class, Color.WHITE).iterator().next();
-            chessPanel.setMarker(whiteKing.getFile(), whiteKing.getRank(), ChessPanel.Marker.CHECK);
+    /**
+     * Analyze the current position in the background, see onAnalysis().
+     */
+    private void analyze() {
+        // same position (e.g. a piece selected): the analysis is still valid
+        if (analysis.analyze(board)) {
+            latest = null;
+        } else if (latest != null) {
+            onAnalysis(latest);
         }
+    }
 
-        if (board.isInCheck(Color.BLACK)) {
-            Coordinates whiteKing = board.getCoordinates(King.class, Color.BLACK).iterator().next();
-            chessPanel.setMarker(whiteKing.getFile(), whiteKing.getRank(), ChessPanel.Marker.CHECK);
+    /**
+     * Show check and game end of the current position, continue the game.
+     */
+    private void onAnalysis(AnalysisService.Analysis analysis) {
+        latest = analysis;
+        displayCheck(analysis.getChecks());
+
+        switch (analysis.getGameEnd()) {
+            case CHECKMATE -> chessPanel.setOverlay(new TextOverlay("Game Over! " + analysis.getSideToMove().opponent() + " won!"));
+            case STALEMATE -> chessPanel.setOverlay(new TextOverlay("Game Over! Stalemate!"));
+            case REPETITION -> chessPanel.setOverlay(new TextOverlay("Game Over! Draw by repetition!"));
+            case FIFTY_MOVES -> chessPanel.setOverlay(new TextOverlay("Game Over! Draw by the fifty-move rule!"));
+            case INSUFFICIENT_MATERIAL -> chessPanel.setOverlay(new TextOverlay("Game Over! Draw by insufficient material!"));
+            case TABLEBASE_DRAW -> chessPanel.setOverlay(new TextOverlay("Game Over! Draw (tablebase)!"));
+            default -> {
+                if (nextPlayer == engineColor && !awaitingPromotion) {
+                    startEngine();
+                }
+            }
         }
+    }
+
+    /**
+     * Search on the engine thread, the move gets played on the EDT.
+     */
+    private void startEngine() {
+        final int request = ++engineRequest;
+
+        engine.search(board, SearchLimits.time(ENGINE_TIME_MILLIS)).thenAccept(result -> SwingUtilities.invokeLater(() -> {
+            Move move = result.getBestMove();
+            if (request != engineRequest || move == null) {
+                return; // position changed or no moves
+            }
+
+            board.move(move);
+            nextPlayer = nextPlayer.opponent();
+            moves = null;
+            chessPanel.clearMarkers();
+            postMove();
+        }));
+    }
 
-        // NoSuchElementException should not be thrown,
-        // because you should not be able to do a move that
-        // would allow your opponent to capture your king.
+    private void stopEngine() {
+        engineRequest++;
+        engine.stop();
+    }
+
+    private void displayCheck(long checks) {
+        for (long kings = checks; kings != 0; kings &= kings - 1) {
+            int square = Long.numberOfTrailingZeros(kings);
+            chessPanel.setMarker(Bitboards.file(square), Bitboards.rank(square), ChessPanel.Marker.CHECK);
+        }
     }
 
     private void displayMoves() {
@@ -202,11 +331,11 @@ public class JavaChess {
     private void clearGui() {
         chessPanel.clearMarkers();
         chessPanel.setOverlay(null);
+        analyze();
         updateGui();
     }
 
     private void updateGui() {
-        board.copyTo(chessPanel.getChessBoard());
-        chessPanel.repaint();
+        chessPanel.setSnapshot(board.snapshot());
     }
 }
@@ -0,0 +1,53 @@
+package com.github.bitfexl.javachess;
+
+import com.github.bitfexl.javachess.server.GameClient;
+import com.github.bitfexl.javachess.server.GameServer;
+import com.github.bitfexl.javachess.server.LoadTest;
+
+import java.net.InetAddress;
+
+/**
+ * Command line load test of the game server, reports moves/s and move latency percentiles.
+ * Without --connect a server is started in this process (loopback),
+ * --local plays against sessions in this process without connections.
+ * Usage: LoadTestRunner [--games n] [--moves n] [--seed n] [--connect host:port | --local]
+ */
+public class LoadTestRunner {
+    public static void main(String[] args) throws Exception {
+        int games = 1000;
+        int moves = 200;
+        long seed = 0;
+        String connect = null;
+        boolean local = false;
+
+        for (int i=0; i<args.length; i++) {
+            switch (args[i]) {
+                case "--games" -> games = Integer.parseInt(args[++i]);
+                case "--moves" -> moves = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--connect" -> connect = args[++i];
+                case "--local" -> local = true;
+                default -> {
+                    System.out.println("Usage: LoadTestRunner [--games n] [--moves n] [--seed n] [--connect host:port | --local]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        LoadTest.Stats stats;
+        if (local) {
+            stats = LoadTest.run(GameClient::local, games, moves, seed);
+        } else if (connect != null) {
+            String host = connect.substring(0, connect.lastIndexOf(':'));
+            int port = Integer.parseInt(connect.substring(connect.lastIndexOf(':') + 1));
+            stats = LoadTest.run(() -> GameClient.connect(host, port), games, moves, seed);
+        } else {
+            try (GameServer server = new GameServer(InetAddress.getLoopbackAddress(), 0)) {
+                stats = LoadTest.run(() -> GameClient.connect(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort()),
+                        games, moves, seed);
+            }
+        }
+        System.out.println(stats);
+        System.exit(0);
+    }
+}
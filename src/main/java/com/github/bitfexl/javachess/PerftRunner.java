@@ -0,0 +1,63 @@
+package com.github.bitfexl.javachess;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Fen;
+import com.github.bitfexl.javachess.perft.Perft;
+import com.github.bitfexl.javachess.perft.PerftSuite;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line perft.
+ * Usage: PerftRunner [--divide] [--threads n] depth [fen]
+ *        PerftRunner --suite [--threads n] [maxDepth]
+ */
+public class PerftRunner {
+    public static void main(String[] args) {
+        boolean suite = false;
+        boolean divide = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = -1;
+        StringBuilder fen = new StringBuilder();
+
+        for (int i=0; i<args.length; i++) {
+            switch (args[i]) {
+                case "--suite" -> suite = true;
+                case "--divide" -> divide = true;
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> {
+                    if (depth < 0) {
+                        depth = Integer.parseInt(args[i]);
+                    } else {
+                        fen.append(args[i]).append(' ');
+                    }
+                }
+            }
+        }
+
+        Perft perft = new Perft(new ForkJoinPool(threads));
+
+        if (suite) {
+            boolean passed = new PerftSuite(perft).run(depth < 0 ? 5 : depth, System.out);
+            System.exit(passed ? 0 : 1);
+        }
+
+        if (depth < 0) {
+            System.out.println("Usage: PerftRunner [--divide] [--threads n] depth [fen]");
+            System.out.println("       PerftRunner --suite [--threads n] [maxDepth]");
+            System.exit(2);
+        }
+
+        Board board = new Board(true);
+        Fen.load(board, fen.isEmpty() ? Fen.INITIAL : fen.toString());
+
+        Perft.Result result = perft.perft(board, depth);
+        if (divide) {
+            result.getDivide().forEach(System.out::println);
+            System.out.println();
+        }
+        System.out.printf("nodes: %d%ntime: %d ms%nnps: %d%n",
+                result.getNodes(), result.getNanos() / 1_000_000, result.getNodesPerSecond());
+        System.exit(0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.bitfexl.javachess;
+
+import com.github.bitfexl.javachess.db.GameArchive;
+import com.github.bitfexl.javachess.db.GameArchiveWriter;
+import com.github.bitfexl.javachess.db.OpeningBookBuilder;
+import com.github.bitfexl.javachess.db.PositionIndex;
+import com.github.bitfexl.javachess.pgn.PgnReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Command line PGN import, reports games/s and plies/s.
+ * Games are appended to a game archive if given,
+ * new archive games are added to a position index if given.
+ * With --book an opening book is compiled instead.
+ * Usage: PgnRunner [--threads n] [--archive file [--index dir]] [--book file [--plies n]] file.pgn
+ */
+public class PgnRunner {
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String archive = null;
+        String index = null;
+        String book = null;
+        int plies = OpeningBookBuilder.DEFAULT_MAX_PLIES;
+        String file = null;
+
+        for (int i=0; i<args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--archive" -> archive = args[++i];
+                case "--index" -> index = args[++i];
+                case "--book" -> book = args[++i];
+                case "--plies" -> plies = Integer.parseInt(args[++i]);
+                default -> file = args[i];
+            }
+        }
+
+        if (file == null || (index != null && archive == null) || (book != null && archive != null)) {
+            System.out.println("Usage: PgnRunner [--threads n] [--archive file [--index dir]] [--book file [--plies n]] file.pgn");
+            System.exit(2);
+        }
+
+        PgnReader.Stats stats;
+        if (book != null) {
+            stats = OpeningBookBuilder.build(Path.of(file), Path.of(book), threads, plies);
+        } else if (archive == null) {
+            stats = PgnReader.read(Path.of(file), threads, game -> { });
+        } else {
+            try (GameArchiveWriter writer = new GameArchiveWriter(Path.of(archive))) {
+                stats = PgnReader.read(Path.of(file), threads, game -> {
+                    try {
+                        writer.append(game);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        }
+        System.out.println(stats);
+
+        if (index != null) {
+            long start = System.nanoTime();
+            try (GameArchive games = GameArchive.open(Path.of(archive))) {
+                int indexed = PositionIndex.update(Path.of(index), games, threads);
+                System.out.printf("indexed %d games in %d ms%n", indexed, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.bitfexl.javachess;
+
+import com.github.bitfexl.javachess.server.GameServer;
+
+import java.io.IOException;
+
+/**
+ * Command line headless game server (protocol see server.GameProtocol).
+ * Usage: ServerRunner [--port n]
+ */
+public class ServerRunner {
+    public static final int DEFAULT_PORT = 7878;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = DEFAULT_PORT;
+
+        for (int i=0; i<args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                default -> {
+                    System.out.println("Usage: ServerRunner [--port n]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        GameServer server = new GameServer(port);
+        System.out.println("listening on port " + server.getPort());
+        server.awaitClose();
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.bitfexl.javachess;
+
+import com.github.bitfexl.javachess.tablebase.Material;
+import com.github.bitfexl.javachess.tablebase.TablebaseGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line tablebase generation, smaller tables needed are generated too.
+ * Usage: TablebaseRunner [--threads n] directory material... (e.g. KQvKR)
+ */
+public class TablebaseRunner {
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String directory = null;
+        List<Material> materials = new ArrayList<>();
+
+        for (int i=0; i<args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> {
+                    if (directory == null) {
+                        directory = args[i];
+                    } else {
+                        materials.add(Material.parse(args[i]));
+                    }
+                }
+            }
+        }
+
+        if (materials.isEmpty()) {
+            System.out.println("Usage: TablebaseRunner [--threads n] directory material... (e.g. KQvKR)");
+            System.exit(2);
+        }
+
+        TablebaseGenerator generator = new TablebaseGenerator(Path.of(directory), threads);
+        generator.setListener(System.out::println);
+        for (Material material : materials) {
+            generator.generate(material);
+        }
+        generator.getTablebases().close();
+        System.exit(0);
+    }
+}
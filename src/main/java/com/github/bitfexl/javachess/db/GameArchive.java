@@ -0,0 +1,246 @@
+package com.github.bitfexl.javachess.db;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Fen;
+import com.github.bitfexl.javachess.pgn.PgnGame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read only, memory mapped game archive. Any game can be
+ * replayed without reading the rest of the file.
+ * <p>
+ * Format (little endian): header (magic "JCGA", version, game count,
+ * reserved int32, index offset int64), games, index (int64 offset per game).
+ * A game: tags length (uint16), tags (UTF-8 "name\0value\0" pairs),
+ * flags (result code, custom start), packed position if custom start
+ * (see PackedPosition), ply count (uint16), 16 bit moves
+ * (PackedMove.base: from, to, promotion).
+ * <p>
+ * Files up to 2 GB. Thread safe.
+ */
+public class GameArchive implements Closeable {
+    static final int MAGIC = 0x4147434A; // "JCGA" little endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    static final int CUSTOM_START = 4;
+
+    private static final String[] RESULTS = {PgnGame.UNKNOWN_RESULT, "1-0", "0-1", "1/2-1/2"};
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int gameCount;
+
+    private final long indexOffset;
+
+    private GameArchive(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a game archive.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported archive version " + buffer.getInt(4) + ".");
+        }
+        this.gameCount = buffer.getInt(8);
+        this.indexOffset = buffer.getLong(16);
+        if (indexOffset + 8L * gameCount != buffer.limit()) {
+            throw new IllegalArgumentException("Archive index is incomplete (not closed?).");
+        }
+    }
+
+    /**
+     * Open an archive.
+     * @param file The archive file.
+     * @return The archive.
+     * @throws IOException The file could not be opened.
+     * @throws IllegalArgumentException The file is not a (complete) archive.
+     */
+    public static GameArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Archives over 2 GB are not supported.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new GameArchive(channel, buffer);
+        } catch (RuntimeException | IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * The file offset of a game.
+     * @param game The game index.
+     */
+    public long getOffset(int game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("Game " + game + " of " + gameCount + ".");
+        }
+        return buffer.getLong((int) (indexOffset + 8L * game));
+    }
+
+    long getIndexOffset() {
+        return indexOffset;
+    }
+
+    /**
+     * The result of a game.
+     * @param game The game index.
+     * @return "1-0", "0-1", "1/2-1/2" or "*".
+     */
+    public String getResult(int game) {
+        return RESULTS[flags(game) & 3];
+    }
+
+    /**
+     * The number of plies of a game.
+     * @param game The game index.
+     */
+    public int getPlies(int game) {
+        return buffer.getShort(movesOffset(game)) & 0xFFFF;
+    }
+
+    /**
+     * The moves of a game.
+     * @param game The game index.
+     * @return The packed moves (see PackedMove) without flags.
+     */
+    public int[] getMoves(int game) {
+        int offset = movesOffset(game);
+        int[] moves = new int[buffer.getShort(offset) & 0xFFFF];
+        for (int i=0; i<moves.length; i++) {
+            moves[i] = buffer.getShort(offset + 2 + 2 * i) & 0xFFFF;
+        }
+        return moves;
+    }
+
+    /**
+     * Set up the starting position of a game.
+     * @param game The game index.
+     * @param board The board to set up, resets move history.
+     */
+    public void loadStart(int game, Board board) {
+        int offset = flagsOffset(game);
+        if ((buffer.get(offset) & CUSTOM_START) != 0) {
+            ByteBuffer position = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            position.position(offset + 1);
+            PackedPosition.read(position, board);
+        } else {
+            board.reset();
+        }
+    }
+
+    /**
+     * Replay a game.
+     * @param game The game index.
+     * @param board The board, contains the final position and the moves as history after the call.
+     */
+    public void replay(int game, Board board) {
+        loadStart(game, board);
+        int offset = movesOffset(game);
+        int plies = buffer.getShort(offset) & 0xFFFF;
+        for (int i=0; i<plies; i++) {
+            board.move(buffer.getShort(offset + 2 + 2 * i) & 0xFFFF);
+        }
+    }
+
+    /**
+     * The tags of a game, FEN and SetUp if it has a custom start position.
+     * @param game The game index.
+     * @return The tags in stored order.
+     */
+    public Map<String, String> getTags(int game) {
+        int offset = (int) getOffset(game);
+        int length = buffer.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 2, bytes);
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        String name = null;
+        int start = 0;
+        for (int i=0; i<length; i++) {
+            if (bytes[i] != 0) {
+                continue;
+            }
+            String value = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+            if (name == null) {
+                name = value;
+            } else {
+                tags.put(name, value);
+                name = null;
+            }
+            start = i + 1;
+        }
+
+        if ((buffer.get(offset + 2 + length) & CUSTOM_START) != 0) {
+            Board board = new Board(true);
+            loadStart(game, board);
+            tags.put("SetUp", "1");
+            tags.put("FEN", Fen.toString(board));
+        }
+        return tags;
+    }
+
+    /**
+     * Read a whole game.
+     * @param game The game index.
+     */
+    public PgnGame getGame(int game) {
+        return new PgnGame(getTags(game), getMoves(game), getResult(game));
+    }
+
+    private int flagsOffset(int game) {
+        int offset = (int) getOffset(game);
+        return offset + 2 + (buffer.getShort(offset) & 0xFFFF);
+    }
+
+    private int flags(int game) {
+        return buffer.get(flagsOffset(game));
+    }
+
+    private int movesOffset(int game) {
+        int offset = flagsOffset(game);
+        if ((buffer.get(offset) & CUSTOM_START) == 0) {
+            return offset + 1;
+        }
+
+        // position size depends on the piece count
+        long occupied = buffer.getLong(offset + 1);
+        return offset + 1 + 8 + (Long.bitCount(occupied) + 1) / 2 + 6;
+    }
+
+    static int resultCode(String result) {
+        for (int i=0; i<RESULTS.length; i++) {
+            if (RESULTS[i].equals(result)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.bitfexl.javachess.db;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.PackedMove;
+import com.github.bitfexl.javachess.pgn.PgnGame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Writes games to a game archive (see GameArchive for the format).
+ * Appends to existing archives, the index is rewritten on close,
+ * so the file is not readable until close() returns.
+ * Thread safe.
+ */
+public class GameArchiveWriter implements Closeable {
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final Board board = new Board(true);
+
+    private long[] offsets;
+
+    private int gameCount;
+
+    // file offset of the next byte written to the buffer
+    private long position;
+
+    /**
+     * Open an archive for writing, existing games are kept.
+     * @param file The archive file, created if it does not exist.
+     * @throws IOException The file could not be opened or is not an archive.
+     */
+    public GameArchiveWriter(Path file) throws IOException {
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (exists) {
+            try (GameArchive archive = GameArchive.open(file)) {
+                gameCount = archive.getGameCount();
+                offsets = new long[Math.max(1024, gameCount * 2)];
+                for (int i=0; i<gameCount; i++) {
+                    offsets[i] = archive.getOffset(i);
+                }
+                position = archive.getIndexOffset();
+            }
+            channel.truncate(position);
+        } else {
+            offsets = new long[1024];
+            position = GameArchive.HEADER_BYTES;
+            writeHeader(0, 0);
+        }
+    }
+
+    /**
+     * Append a game.
+     * @param game The game.
+     * @return The index of the game in the archive.
+     * @throws IOException The game could not be written.
+     */
+    public synchronized int append(PgnGame game) throws IOException {
+        byte[] tags = encodeTags(game.getTags());
+        boolean customStart = game.getTag("FEN") != null;
+        int[] moves = game.getPackedMoves();
+        if (moves.length > 0xFFFF) {
+            throw new IllegalArgumentException("Too many moves: " + moves.length);
+        }
+
+        int size = 2 + tags.length + 1 + (customStart ? PackedPosition.MAX_BYTES : 0) + 2 + 2 * moves.length;
+        ensureSpace(size);
+
+        if (gameCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, gameCount * 2);
+        }
+        offsets[gameCount] = position + buffer.position();
+
+        buffer.putShort((short) tags.length);
+        buffer.put(tags);
+        buffer.put((byte) (GameArchive.resultCode(game.getResult()) | (customStart ? GameArchive.CUSTOM_START : 0)));
+        if (customStart) {
+            game.loadStart(board);
+            PackedPosition.write(board, buffer);
+        }
+        buffer.putShort((short) moves.length);
+        for (int move : moves) {
+            buffer.putShort((short) PackedMove.base(move));
+        }
+
+        return gameCount++;
+    }
+
+    /**
+     * Tags as UTF-8 "name\0value\0" pairs, without the FEN tag
+     * (stored as a packed position), at most 64 KB.
+     */
+    private static byte[] encodeTags(Map<String, String> tags) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (tag.getKey().equals("FEN") || tag.getKey().equals("SetUp")) {
+                continue;
+            }
+            out.writeBytes(tag.getKey().getBytes(StandardCharsets.UTF_8));
+            out.write(0);
+            out.writeBytes(tag.getValue().getBytes(StandardCharsets.UTF_8));
+            out.write(0);
+        }
+        if (out.size() > 0xFFFF) {
+            throw new IllegalArgumentException("Tags too long: " + out.size() + " bytes.");
+        }
+        return out.toByteArray();
+    }
+
+    private void ensureSpace(int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return;
+        }
+        flushBuffer();
+        if (buffer.capacity() < size) {
+            throw new IllegalArgumentException("Game too large: " + size + " bytes.");
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader(int games, long indexOffset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(GameArchive.MAGIC).putInt(GameArchive.VERSION).putInt(games).putInt(0).putLong(indexOffset);
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    /**
+     * Write the index and the header and close the file.
+     * @throws IOException The index could not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flushBuffer();
+            long indexOffset = position;
+            for (int i=0; i<gameCount; i++) {
+                ensureSpace(8);
+                buffer.putLong(offsets[i]);
+            }
+            flushBuffer();
+            writeHeader(gameCount, indexOffset);
+        } finally {
+            channel.close();
+        }
+    }
+}
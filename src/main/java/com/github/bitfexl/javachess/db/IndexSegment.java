@@ -0,0 +1,227 @@
+package com.github.bitfexl.javachess.db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * An immutable, memory mapped file of (key, value) pairs sorted by key.
+ * Format (little endian): header (magic "JCPI", version, first game,
+ * game count, entry count int64, reserved int64), then the entries
+ * as int64 pairs. A segment is mapped as a single buffer, so it
+ * holds at most MAX_ENTRIES entries (just under 2 GB).
+ */
+class IndexSegment implements Closeable {
+    private static final int MAGIC = 0x4950434A; // "JCPI" little endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    static final int MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_BYTES) / 16;
+
+    private final FileChannel channel;
+
+    private final LongBuffer entries;
+
+    private final int firstGame;
+
+    private final int gameCount;
+
+    private final int size;
+
+    private IndexSegment(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not an index segment.");
+        }
+        this.firstGame = buffer.getInt(8);
+        this.gameCount = buffer.getInt(12);
+        long count = buffer.getLong(16);
+        if (HEADER_BYTES + count * 16 != buffer.limit()) {
+            throw new IllegalArgumentException("Index segment is incomplete.");
+        }
+        this.size = (int) count;
+        this.entries = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * Open a segment.
+     * @param file The segment file.
+     * @throws IOException The file could not be read.
+     * @throws IllegalArgumentException The file is not a (complete) segment.
+     */
+    static IndexSegment open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Segments over 2 GB are not supported.");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            return new IndexSegment(channel, buffer);
+        } catch (RuntimeException | IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Write a segment from sorted runs, merging them.
+     * @param file The segment file, replaced.
+     * @param firstGame The first indexed game.
+     * @param gameCount The number of indexed games.
+     * @param runs Runs of interleaved (key, value) pairs, each sorted by key.
+     * @param runLengths The number of pairs of each run.
+     * @throws IllegalArgumentException More than MAX_ENTRIES pairs.
+     */
+    static void write(Path file, int firstGame, int gameCount, List<long[]> runs, List<Integer> runLengths) throws IOException {
+        long total = 0;
+        for (int length : runLengths) {
+            total += length;
+        }
+        if (total > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Segment of " + total + " entries is over the maximum of " + MAX_ENTRIES + ".");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(firstGame).putInt(gameCount).putLong(total).putLong(0);
+
+        // k-way merge, heap of run indices ordered by their current key
+        int[] positions = new int[runs.size()];
+        PriorityQueue<Integer> heap = new PriorityQueue<>((a, b) -> Long.compare(
+                runs.get(a)[2 * positions[a]], runs.get(b)[2 * positions[b]]));
+        for (int i=0; i<runs.size(); i++) {
+            if (runLengths.get(i) > 0) {
+                heap.add(i);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (!heap.isEmpty()) {
+                int run = heap.poll();
+                long[] pairs = runs.get(run);
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(pairs[2 * positions[run]]).putLong(pairs[2 * positions[run] + 1]);
+                if (++positions[run] < runLengths.get(run)) {
+                    heap.add(run);
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Sort interleaved (key, value) pairs by key, in place.
+     * @param pairs The pairs.
+     * @param length The number of pairs.
+     */
+    static void sort(long[] pairs, int length) {
+        sort(pairs, 0, length - 1);
+    }
+
+    private static void sort(long[] pairs, int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                for (int i=low+1; i<=high; i++) {
+                    for (int j=i; j>low && pairs[2 * j] < pairs[2 * (j - 1)]; j--) {
+                        swap(pairs, j, j - 1);
+                    }
+                }
+                return;
+            }
+
+            long pivot = pairs[2 * ((low + high) >>> 1)];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (pairs[2 * i] < pivot) {
+                    i++;
+                }
+                while (pairs[2 * j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(pairs, i++, j--);
+                }
+            }
+
+            // recurse into the smaller part
+            if (j - low < high - i) {
+                sort(pairs, low, j);
+                low = i;
+            } else {
+                sort(pairs, i, high);
+                high = j;
+            }
+        }
+    }
+
+    private static void swap(long[] pairs, int a, int b) {
+        long key = pairs[2 * a];
+        long value = pairs[2 * a + 1];
+        pairs[2 * a] = pairs[2 * b];
+        pairs[2 * a + 1] = pairs[2 * b + 1];
+        pairs[2 * b] = key;
+        pairs[2 * b + 1] = value;
+    }
+
+    /**
+     * Binary search the first entry of a key.
+     * @param key The key.
+     * @return The entry index, size() if there is none.
+     */
+    int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(2 * mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    long key(int entry) {
+        return entries.get(2 * entry);
+    }
+
+    long value(int entry) {
+        return entries.get(2 * entry + 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getFirstGame() {
+        return firstGame;
+    }
+
+    int getGameCount() {
+        return gameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,215 @@
+package com.github.bitfexl.javachess.db;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Move;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import com.github.bitfexl.javachess.game.PackedMove;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Read only, memory mapped opening book, entries are found
+ * by binary search of the position key (see Board.hash()).
+ * <p>
+ * Format (little endian): header (magic "JCOB", version, entry count,
+ * reserved int32), entries sorted by key, then by weight descending.
+ * An entry: key (int64), move (uint16, PackedMove.base), weight (uint16).
+ * <p>
+ * Files up to 2 GB. Thread safe. See OpeningBookBuilder.
+ */
+public class OpeningBook implements Closeable {
+    /**
+     * A book move of a position.
+     */
+    public static class Entry {
+        private final int move;
+        private final int weight;
+
+        private Entry(int move, int weight) {
+            this.move = move;
+            this.weight = weight;
+        }
+
+        /**
+         * The move, packed (see PackedMove) with flags.
+         */
+        public int getMove() {
+            return move;
+        }
+
+        /**
+         * The relative weight, higher is played more often.
+         */
+        public int getWeight() {
+            return weight;
+        }
+
+        @Override
+        public String toString() {
+            return PackedMove.toString(move) + " " + weight;
+        }
+    }
+
+    static final int MAGIC = 0x424F434A; // "JCOB" little endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 12;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int entryCount;
+
+    private OpeningBook(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an opening book.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported book version " + buffer.getInt(4) + ".");
+        }
+        this.entryCount = buffer.getInt(8);
+        if (HEADER_BYTES + (long) ENTRY_BYTES * entryCount != buffer.limit()) {
+            throw new IllegalArgumentException("Opening book is incomplete.");
+        }
+    }
+
+    /**
+     * Open a book.
+     * @param file The book file.
+     * @return The book.
+     * @throws IOException The file could not be opened.
+     * @throws IllegalArgumentException The file is not a (complete) book.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Books over 2 GB are not supported.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new OpeningBook(channel, buffer);
+        } catch (RuntimeException | IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * The legal book moves of a position.
+     * @param board The position.
+     * @return The moves, highest weight first, empty if the position is not in the book.
+     */
+    public List<Entry> getEntries(Board board) {
+        List<Entry> entries = new ArrayList<>();
+        long key = board.hash();
+        int[] legal = null;
+        int legalCount = 0;
+
+        for (int i=lowerBound(key); i<entryCount && key(i) == key; i++) {
+            if (legal == null) {
+                legal = new int[MoveGenerator.MAX_MOVES];
+                legalCount = MoveGenerator.generateLegal(board, board.getSideToMove(), legal, 0);
+            }
+
+            // the key could collide, only keep legal moves
+            int move = move(i);
+            for (int j=0; j<legalCount; j++) {
+                if (PackedMove.base(legal[j]) == move) {
+                    entries.add(new Entry(legal[j], weight(i)));
+                    break;
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Choose a book move at random, proportional to the weights.
+     * @param board The position.
+     * @param random The random source.
+     * @return The move or null if the position is not in the book.
+     */
+    public Move pick(Board board, Random random) {
+        int move = pickMove(board, random);
+        return move == PackedMove.NONE ? null : Move.of(move);
+    }
+
+    /**
+     * Choose a book move at random, proportional to the weights.
+     * @param board The position.
+     * @param random The random source.
+     * @return The packed move (see PackedMove) or PackedMove.NONE if the position is not in the book.
+     */
+    public int pickMove(Board board, Random random) {
+        List<Entry> entries = getEntries(board);
+        int total = 0;
+        for (Entry entry : entries) {
+            total += entry.weight;
+        }
+        if (total == 0) {
+            return PackedMove.NONE;
+        }
+
+        int choice = random.nextInt(total);
+        for (Entry entry : entries) {
+            choice -= entry.weight;
+            if (choice < 0) {
+                return entry.move;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    /**
+     * Binary search the first entry of a key.
+     * @return The entry index, the entry count if there is none.
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long key(int entry) {
+        return buffer.getLong(HEADER_BYTES + ENTRY_BYTES * entry);
+    }
+
+    private int move(int entry) {
+        return buffer.getShort(HEADER_BYTES + ENTRY_BYTES * entry + 8) & 0xFFFF;
+    }
+
+    private int weight(int entry) {
+        return buffer.getShort(HEADER_BYTES + ENTRY_BYTES * entry + 10) & 0xFFFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.bitfexl.javachess.db;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.PackedMove;
+import com.github.bitfexl.javachess.pgn.PgnGame;
+import com.github.bitfexl.javachess.pgn.PgnReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles an opening book (see OpeningBook) from games.
+ * Every move of the first plies of a game adds to its weight:
+ * 2 for a win of the moving side, 1 for a draw or an unknown result.
+ * add() is thread safe, every thread collects its own entries.
+ */
+public class OpeningBookBuilder {
+    /**
+     * Entries of one thread, interleaved (key, move << 32 | weight) pairs.
+     */
+    private static class Run {
+        private final Board board = new Board(true);
+        private long[] pairs = new long[1 << 16];
+        private int length;
+
+        private void add(long key, int move, int weight) {
+            if (2 * length + 2 > pairs.length) {
+                // merge duplicates before growing
+                length = compact(pairs, length);
+                if (4 * length + 2 > pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                }
+            }
+            pairs[2 * length] = key;
+            pairs[2 * length + 1] = (long) move << 32 | weight;
+            length++;
+        }
+    }
+
+    public static final int DEFAULT_MAX_PLIES = 24;
+
+    private final int maxPlies;
+
+    private final List<Run> runs = new ArrayList<>();
+
+    private final ThreadLocal<Run> run = ThreadLocal.withInitial(() -> {
+        Run run = new Run();
+        synchronized (runs) {
+            runs.add(run);
+        }
+        return run;
+    });
+
+    public OpeningBookBuilder() {
+        this(DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * Init a builder.
+     * @param maxPlies The number of plies of every game added to the book.
+     */
+    public OpeningBookBuilder(int maxPlies) {
+        if (maxPlies < 1) {
+            throw new IllegalArgumentException("maxPlies must be positive: " + maxPlies);
+        }
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Compile a book from a PGN file, games are parsed and added in parallel.
+     * @param pgn The PGN file.
+     * @param book The book file, replaced.
+     * @param threads The number of threads.
+     * @param maxPlies The number of plies of every game added to the book.
+     * @return The PGN read statistics.
+     * @throws IOException The files could not be read or written.
+     */
+    public static PgnReader.Stats build(Path pgn, Path book, int threads, int maxPlies) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies);
+        PgnReader.Stats stats = PgnReader.read(pgn, threads, builder::add);
+        builder.write(book);
+        return stats;
+    }
+
+    /**
+     * Add the first plies of a game.
+     * @param game The game.
+     */
+    public void add(PgnGame game) {
+        Run run = this.run.get();
+        int[] moves = game.getPackedMoves();
+        int plies = Math.min(maxPlies, moves.length);
+        String result = game.getResult();
+
+        game.loadStart(run.board);
+        for (int i=0; i<plies; i++) {
+            Color mover = run.board.getSideToMove();
+            int weight;
+            if (result.equals("1/2-1/2") || result.equals(PgnGame.UNKNOWN_RESULT)) {
+                weight = 1;
+            } else if (result.equals(mover == Color.WHITE ? "1-0" : "0-1")) {
+                weight = 2;
+            } else {
+                weight = 0;
+            }
+
+            if (weight > 0) {
+                run.add(run.board.hash(), PackedMove.base(moves[i]), weight);
+            }
+            run.board.move(moves[i]);
+        }
+    }
+
+    /**
+     * Write the book of all added games.
+     * Must not be called while games are added.
+     * @param file The book file, replaced.
+     * @return The number of entries.
+     * @throws IOException The file could not be written.
+     */
+    public int write(Path file) throws IOException {
+        long[] pairs;
+        int length = 0;
+        synchronized (runs) {
+            long total = 0;
+            for (Run run : runs) {
+                total += run.length;
+            }
+            if (2 * total > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many book entries: " + total);
+            }
+            pairs = new long[(int) (2 * total)];
+            for (Run run : runs) {
+                System.arraycopy(run.pairs, 0, pairs, 2 * length, 2 * run.length);
+                length += run.length;
+            }
+        }
+        length = compact(pairs, length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(0).putInt(0);
+        int entries = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int start=0, end; start<length; start=end) {
+                // weights of a position, scaled to 16 bit
+                long max = 0;
+                for (end=start; end<length && pairs[2 * end] == pairs[2 * start]; end++) {
+                    max = Math.max(max, pairs[2 * end + 1] & 0xFFFFFFFFL);
+                }
+                for (int i=start; i<end; i++) {
+                    long weight = pairs[2 * i + 1] & 0xFFFFFFFFL;
+                    if (max > 0xFFFF) {
+                        weight = Math.max(1, weight * 0xFFFF / max);
+                    }
+                    if (buffer.remaining() < OpeningBook.ENTRY_BYTES) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putLong(pairs[2 * i]).putShort((short) (pairs[2 * i + 1] >>> 32)).putShort((short) weight);
+                    entries++;
+                }
+            }
+            flush(channel, buffer);
+
+            ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(entries);
+            count.flip();
+            channel.write(count, 8);
+        }
+        return entries;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Sort pairs by key, sum the weights of equal moves
+     * and order the moves of a key by weight descending.
+     * @return The new number of pairs.
+     */
+    private static int compact(long[] pairs, int length) {
+        IndexSegment.sort(pairs, length);
+
+        int out = 0;
+        for (int start=0, end; start<length; start=end) {
+            int groupStart = out;
+            for (end=start; end<length && pairs[2 * end] == pairs[2 * start]; end++) {
+                long move = pairs[2 * end + 1] >>> 32;
+                long weight = pairs[2 * end + 1] & 0xFFFFFFFFL;
+
+                int j = groupStart;
+                while (j < out && pairs[2 * j + 1] >>> 32 != move) {
+                    j++;
+                }
+                if (j < out) {
+                    long sum = Math.min(0xFFFFFFFFL, (pairs[2 * j + 1] & 0xFFFFFFFFL) + weight);
+                    pairs[2 * j + 1] = move << 32 | sum;
+                } else {
+                    pairs[2 * out] = pairs[2 * end];
+                    pairs[2 * out + 1] = pairs[2 * end + 1];
+                    out++;
+                }
+            }
+
+            // few moves per position, insertion sort by weight
+            for (int i=groupStart+1; i<out; i++) {
+                for (int j=i; j>groupStart && (pairs[2 * j + 1] & 0xFFFFFFFFL) > (pairs[2 * j - 1] & 0xFFFFFFFFL); j--) {
+                    long value = pairs[2 * j + 1];
+                    pairs[2 * j + 1] = pairs[2 * j - 1];
+                    pairs[2 * j - 1] = value;
+                }
+            }
+        }
+        return out;
+    }
+}
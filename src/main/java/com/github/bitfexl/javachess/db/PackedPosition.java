@@ -0,0 +1,88 @@
+package com.github.bitfexl.javachess.db;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A position in at most 30 bytes: the occupied squares (8 bytes),
+ * one nibble per occupied square (color ordinal and piece type, a1 to h8),
+ * side to move and castling rights (1 byte), en passant square (1 byte),
+ * halfmove clock and move number (2 bytes each).
+ */
+public final class PackedPosition {
+    public static final int MAX_BYTES = 8 + 16 + 6;
+
+    private PackedPosition() { }
+
+    /**
+     * Write a position.
+     * @param board The position.
+     * @param buffer The buffer, written at its position.
+     */
+    public static void write(Board board, ByteBuffer buffer) {
+        long occupied = board.getOccupied();
+        buffer.putLong(occupied);
+
+        int nibbles = 0;
+        int count = 0;
+        for (long set = occupied; set != 0; set &= set - 1) {
+            Piece piece = board.get(Bitboards.first(set));
+            nibbles |= (piece.getColor().ordinal() << 3 | piece.getType()) << (count++ % 2 * 4);
+            if (count % 2 == 0) {
+                buffer.put((byte) nibbles);
+                nibbles = 0;
+            }
+        }
+        if (count % 2 != 0) {
+            buffer.put((byte) nibbles);
+        }
+
+        buffer.put((byte) (board.getCastlingRights() << 1 | board.getSideToMove().ordinal()));
+        buffer.put((byte) board.getEnPassantSquare());
+        buffer.putShort((short) Math.min(board.getHalfmoveClock(), 0xFFFF));
+        buffer.putShort((short) Math.min(board.getFullmoveNumber(), 0xFFFF));
+    }
+
+    /**
+     * Read a position. Resets move history.
+     * @param buffer The buffer, read at its position.
+     * @param board The board to load the position into.
+     */
+    public static void read(ByteBuffer buffer, Board board) {
+        board.clear();
+
+        long occupied = buffer.getLong();
+        int nibbles = 0;
+        int count = 0;
+        for (long set = occupied; set != 0; set &= set - 1) {
+            if (count++ % 2 == 0) {
+                nibbles = buffer.get();
+            } else {
+                nibbles >>>= 4;
+            }
+            int type = nibbles & 7;
+            Color color = (nibbles & 8) != 0 ? Color.WHITE : Color.BLACK;
+            board.set(Bitboards.first(set), Piece.of(type, color));
+        }
+
+        int state = buffer.get();
+        board.setSideToMove((state & 1) != 0 ? Color.WHITE : Color.BLACK);
+        board.setCastlingRights((state >>> 1) & 0xF);
+        board.setEnPassantSquare(buffer.get());
+        board.setHalfmoveClock(buffer.getShort() & 0xFFFF);
+        board.setFullmoveNumber(Math.max(1, buffer.getShort() & 0xFFFF));
+    }
+
+    /**
+     * The size of a written position.
+     * @param board The position.
+     * @return The size in bytes.
+     */
+    public static int size(Board board) {
+        return 8 + (Bitboards.count(board.getOccupied()) + 1) / 2 + 6;
+    }
+}
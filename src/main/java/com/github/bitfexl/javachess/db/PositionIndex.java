@@ -0,0 +1,329 @@
+package com.github.bitfexl.javachess.db;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Index of the positions of a game archive: which games reached
+ * a position (by Zobrist key) or a material balance (by signature).
+ * <p>
+ * Stored in a directory as pairs of sorted, memory mapped segments
+ * ("n.pos" and "n.mat"). update() indexes new games of the archive
+ * into new pairs of segments, lookups binary search every segment.
+ * A pair holds at most about 32M positions (512 MB), larger updates
+ * are split into several pairs, so neither the sorted runs on the
+ * heap nor a mapped segment grow with the archive.
+ */
+public class PositionIndex implements Closeable {
+    /**
+     * A game and the ply where it reached a position.
+     */
+    public static class Hit {
+        private final int game;
+        private final int ply;
+
+        private Hit(long value) {
+            this.game = (int) (value >>> 16);
+            this.ply = (int) (value & 0xFFFF);
+        }
+
+        public int getGame() {
+            return game;
+        }
+
+        /**
+         * Plies played from the start position of the game.
+         */
+        public int getPly() {
+            return ply;
+        }
+
+        @Override
+        public String toString() {
+            return "game " + game + " ply " + ply;
+        }
+    }
+
+    // games per build task
+    private static final int TASK_GAMES = 4096;
+
+    // positions per segment pair (512 MB), well below IndexSegment.MAX_ENTRIES
+    private static final int SEGMENT_ENTRIES = 1 << 25;
+
+    /**
+     * Sorted runs of consecutive games, written as one segment pair.
+     */
+    private static class Runs {
+        private final int firstGame;
+        private int games;
+        private long positionCount;
+        private final List<long[]> positions = new ArrayList<>();
+        private final List<Integer> positionLengths = new ArrayList<>();
+        private final List<long[]> materials = new ArrayList<>();
+        private final List<Integer> materialLengths = new ArrayList<>();
+
+        private Runs(int firstGame) {
+            this.firstGame = firstGame;
+        }
+
+        /**
+         * Add the result of indexGames().
+         */
+        private void add(long[][] result, int games) {
+            this.games += games;
+            positionCount += result[2][0];
+            positions.add(result[0]);
+            positionLengths.add((int) result[2][0]);
+            materials.add(result[1]);
+            materialLengths.add((int) result[2][1]);
+        }
+
+        private void write(Path directory, int n) throws IOException {
+            // material segment first, a segment pair is complete once the position segment exists
+            IndexSegment.write(directory.resolve(n + ".mat"), firstGame, games, materials, materialLengths);
+            IndexSegment.write(directory.resolve(n + ".pos"), firstGame, games, positions, positionLengths);
+        }
+    }
+
+    private final List<IndexSegment> positions;
+
+    private final List<IndexSegment> materials;
+
+    private PositionIndex(List<IndexSegment> positions, List<IndexSegment> materials) {
+        this.positions = positions;
+        this.materials = materials;
+    }
+
+    /**
+     * Open an index.
+     * @param directory The index directory, may be empty or not exist yet.
+     * @return The index.
+     * @throws IOException The segments could not be read.
+     */
+    public static PositionIndex open(Path directory) throws IOException {
+        List<IndexSegment> positions = new ArrayList<>();
+        List<IndexSegment> materials = new ArrayList<>();
+        for (int n : segmentNumbers(directory)) {
+            positions.add(IndexSegment.open(directory.resolve(n + ".pos")));
+            materials.add(IndexSegment.open(directory.resolve(n + ".mat")));
+        }
+        return new PositionIndex(positions, materials);
+    }
+
+    /**
+     * Index the games of an archive that are not indexed yet
+     * (incremental, e.g. after appending games to the archive).
+     * Games are replayed in parallel and written in segment pairs
+     * of at most SEGMENT_ENTRIES positions; pairs written before a
+     * failure stay valid and are continued by the next update.
+     * @param directory The index directory, created if it does not exist.
+     * @param archive The archive.
+     * @param threads The number of threads.
+     * @return The number of newly indexed games.
+     * @throws IOException The segments could not be written.
+     */
+    public static int update(Path directory, GameArchive archive, int threads) throws IOException {
+        Files.createDirectories(directory);
+
+        int next = 0;
+        int indexed = 0;
+        try (PositionIndex index = open(directory)) {
+            for (IndexSegment segment : index.positions) {
+                indexed = Math.max(indexed, segment.getFirstGame() + segment.getGameCount());
+            }
+        }
+        for (int n : segmentNumbers(directory)) {
+            next = Math.max(next, n + 1);
+        }
+
+        int games = archive.getGameCount() - indexed;
+        if (games <= 0) {
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<long[][]>> tasks = new ArrayDeque<>();
+        Runs runs = new Runs(indexed);
+        int submitted = indexed;
+        try {
+            while (runs.firstGame + runs.games < archive.getGameCount()) {
+                // results are taken in game order, only a few tasks ahead are in flight
+                while (tasks.size() < 2 * threads && submitted < archive.getGameCount()) {
+                    int from = submitted;
+                    int to = Math.min(from + TASK_GAMES, archive.getGameCount());
+                    tasks.add(executor.submit(() -> indexGames(archive, from, to)));
+                    submitted = to;
+                }
+
+                long[][] result = tasks.poll().get();
+                if (runs.positionCount > 0 && runs.positionCount + result[2][0] > SEGMENT_ENTRIES) {
+                    runs.write(directory, next++);
+                    runs = new Runs(runs.firstGame + runs.games);
+                }
+                runs.add(result, Math.min(TASK_GAMES, archive.getGameCount() - runs.firstGame - runs.games));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing.", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Indexing failed.", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        runs.write(directory, next);
+        return games;
+    }
+
+    /**
+     * Replay games, collect and sort (key, game/ply) pairs.
+     * @return {positions, materials, {position count, material count}}.
+     */
+    private static long[][] indexGames(GameArchive archive, int from, int to) {
+        Board board = new Board(true);
+        long[] positions = new long[1 << 16];
+        long[] materials = new long[1 << 12];
+        int positionCount = 0;
+        int materialCount = 0;
+
+        for (int game=from; game<to; game++) {
+            archive.loadStart(game, board);
+            int[] moves = archive.getMoves(game);
+            long material = 0;
+
+            for (int ply=0; ply<=moves.length; ply++) {
+                if (ply > 0) {
+                    board.move(moves[ply - 1]);
+                }
+                long value = (long) game << 16 | ply;
+
+                if (2 * positionCount + 2 > positions.length) {
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                }
+                positions[2 * positionCount] = board.hash();
+                positions[2 * positionCount + 1] = value;
+                positionCount++;
+
+                // only the first ply of every material balance
+                long signature = materialSignature(board);
+                if (ply == 0 || signature != material) {
+                    material = signature;
+                    if (2 * materialCount + 2 > materials.length) {
+                        materials = Arrays.copyOf(materials, materials.length * 2);
+                    }
+                    materials[2 * materialCount] = signature;
+                    materials[2 * materialCount + 1] = value;
+                    materialCount++;
+                }
+            }
+        }
+
+        IndexSegment.sort(positions, positionCount);
+        IndexSegment.sort(materials, materialCount);
+        return new long[][] {positions, materials, {positionCount, materialCount}};
+    }
+
+    /**
+     * The material signature of a position: 4 bits per piece count
+     * (pawn to queen, white then black), kings are not counted.
+     * @param board The position.
+     * @return The signature.
+     */
+    public static long materialSignature(Board board) {
+        long signature = 0;
+        int shift = 0;
+        for (Color color : new Color[] {Color.WHITE, Color.BLACK}) {
+            for (int type=Piece.PAWN; type<Piece.KING; type++) {
+                long count = Math.min(15, Long.bitCount(board.getPieces(type, color)));
+                signature |= count << shift;
+                shift += 4;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * All games that reached a position.
+     * @param key The position key (see Board.hash()).
+     * @return The games and plies, by game.
+     */
+    public List<Hit> findPosition(long key) {
+        return find(positions, key);
+    }
+
+    /**
+     * All games that reached a material balance,
+     * the first ply with this balance per game.
+     * @param signature The material signature (see materialSignature()).
+     * @return The games and plies, by game.
+     */
+    public List<Hit> findMaterial(long signature) {
+        return find(materials, signature);
+    }
+
+    private static List<Hit> find(List<IndexSegment> segments, long key) {
+        List<Hit> hits = new ArrayList<>();
+        for (IndexSegment segment : segments) {
+            for (int i=segment.lowerBound(key); i<segment.size() && segment.key(i) == key; i++) {
+                hits.add(new Hit(segment.value(i)));
+            }
+        }
+        hits.sort((a, b) -> a.game != b.game ? Integer.compare(a.game, b.game) : Integer.compare(a.ply, b.ply));
+        return hits;
+    }
+
+    /**
+     * Number of indexed positions.
+     */
+    public long getPositionCount() {
+        long count = 0;
+        for (IndexSegment segment : positions) {
+            count += segment.size();
+        }
+        return count;
+    }
+
+    /**
+     * Numbers of the complete segment pairs in a directory, ascending.
+     */
+    private static List<Integer> segmentNumbers(Path directory) throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.pos")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Integer.parseInt(name.substring(0, name.length() - 4)));
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (IndexSegment segment : positions) {
+            segment.close();
+        }
+        for (IndexSegment segment : materials) {
+            segment.close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.bitfexl.javachess.eval;
+
+import com.github.bitfexl.javachess.game.Board;
+
+/**
+ * A static evaluation, called at every leaf of a search.
+ * Implementations should read incrementally maintained
+ * terms of the board instead of scanning it.
+ */
+public interface Evaluator {
+    /**
+     * Evaluate a position.
+     * @param board The position.
+     * @return The score in centipawns from the view of the side to move.
+     */
+    int evaluate(Board board);
+
+    /**
+     * Called once with the board this evaluator is used on,
+     * incremental evaluators register as PieceListener here.
+     * @param board The board evaluated by following calls.
+     */
+    default void attach(Board board) { }
+}
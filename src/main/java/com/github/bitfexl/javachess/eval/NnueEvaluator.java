@@ -0,0 +1,145 @@
+package com.github.bitfexl.javachess.eval;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.PieceListener;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+/**
+ * Evaluation by an efficiently updatable network (see NnueNetwork).
+ * Keeps one int16 accumulator per perspective, every piece change
+ * adds or subtracts one weight column, so move and undo cost
+ * O(hidden) instead of a full refresh of O(pieces * hidden).
+ * <p>
+ * The loops are plain array loops over short[], which the JIT
+ * vectorizes (the Vector API is still incubating in JDK 17).
+ * Not thread safe, use one evaluator per board.
+ */
+public class NnueEvaluator implements Evaluator, PieceListener {
+    private final NnueNetwork network;
+
+    private final int hidden;
+
+    private final short[] featureWeights;
+
+    private final short[] outputWeights;
+
+    // [perspective color ordinal][neuron]
+    private final short[][] accumulators;
+
+    private Board board;
+
+    /**
+     * Init an evaluator.
+     * @param network The network, may be shared between evaluators.
+     */
+    public NnueEvaluator(NnueNetwork network) {
+        this.network = network;
+        this.hidden = network.getHidden();
+        this.featureWeights = network.getFeatureWeights();
+        this.outputWeights = network.getOutputWeights();
+        this.accumulators = new short[2][hidden];
+    }
+
+    /**
+     * Attach to a board, detaches from the previous board.
+     */
+    @Override
+    public void attach(Board board) {
+        if (this.board != null) {
+            this.board.setPieceListener(null);
+        }
+        this.board = board;
+        board.setPieceListener(this);
+        refresh(board);
+    }
+
+    /**
+     * Evaluate the attached board from its accumulators.
+     * Other boards get attached first (full refresh).
+     */
+    @Override
+    public int evaluate(Board board) {
+        if (board != this.board) {
+            attach(board);
+        }
+
+        int us = board.getSideToMove().ordinal();
+        short[] own = accumulators[us];
+        short[] other = accumulators[us ^ 1];
+
+        int sum = 0;
+        for (int i=0; i<hidden; i++) {
+            sum += clippedRelu(own[i]) * outputWeights[i];
+        }
+        for (int i=0; i<hidden; i++) {
+            sum += clippedRelu(other[i]) * outputWeights[hidden + i];
+        }
+
+        return (sum / NnueNetwork.QA + network.getOutputBias()) * NnueNetwork.SCALE / NnueNetwork.QB;
+    }
+
+    /**
+     * Recalculate both accumulators from scratch.
+     * @param board The position.
+     */
+    public void refresh(Board board) {
+        short[] biases = network.getFeatureBiases();
+        for (short[] accumulator : accumulators) {
+            System.arraycopy(biases, 0, accumulator, 0, hidden);
+        }
+
+        for (long set = board.getOccupied(); set != 0; set &= set - 1) {
+            int square = Bitboards.first(set);
+            piecePlaced(board.get(square), square);
+        }
+    }
+
+    @Override
+    public void pieceRemoved(Piece piece, int square) {
+        update(piece, square, -1);
+    }
+
+    @Override
+    public void piecePlaced(Piece piece, int square) {
+        update(piece, square, 1);
+    }
+
+    @Override
+    public void positionReplaced(Board board) {
+        refresh(board);
+    }
+
+    private void update(Piece piece, int square, int sign) {
+        int color = piece.getColor().ordinal();
+        int type = piece.getType();
+
+        for (int perspective=0; perspective<2; perspective++) {
+            short[] accumulator = accumulators[perspective];
+            int offset = NnueNetwork.feature(perspective, color, type, square) * hidden;
+            if (sign > 0) {
+                for (int i=0; i<hidden; i++) {
+                    accumulator[i] += featureWeights[offset + i];
+                }
+            } else {
+                for (int i=0; i<hidden; i++) {
+                    accumulator[i] -= featureWeights[offset + i];
+                }
+            }
+        }
+    }
+
+    private static int clippedRelu(short value) {
+        return Math.min(Math.max(value, 0), NnueNetwork.QA);
+    }
+
+    /**
+     * The accumulator of a perspective, for debugging.
+     * @param perspective The perspective.
+     * @return A copy of the accumulator.
+     */
+    public short[] getAccumulator(Color perspective) {
+        return accumulators[perspective.ordinal()].clone();
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.bitfexl.javachess.eval;
+
+import com.github.bitfexl.javachess.game.Color;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Quantized weights of an efficiently updatable network:
+ * 768 inputs (color, piece type, square) per perspective,
+ * one hidden layer (accumulator) shared by both perspectives,
+ * clipped ReLU and a single output.
+ * <p>
+ * File format (little endian): magic "JCNN", version, hidden size (int32),
+ * then int16 feature weights [768][hidden], feature biases [hidden],
+ * output weights [2 * hidden] (side to move first) and the output bias.
+ */
+public class NnueNetwork {
+    public static final int INPUTS = 2 * 6 * 64;
+
+    /**
+     * Quantization of the accumulator, also the clipped ReLU maximum.
+     */
+    public static final int QA = 255;
+
+    /**
+     * Quantization of the output weights.
+     */
+    public static final int QB = 64;
+
+    /**
+     * Output to centipawns.
+     */
+    public static final int SCALE = 400;
+
+    private static final int MAGIC = 0x4E4E434A; // "JCNN" little endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    private final int hidden;
+
+    // [feature * hidden + neuron], so a feature is one contiguous column
+    private final short[] featureWeights;
+    private final short[] featureBiases;
+    private final short[] outputWeights;
+    private final short outputBias;
+
+    /**
+     * Init a network from weights (not copied).
+     * @param hidden The accumulator size.
+     * @param featureWeights INPUTS * hidden weights, feature major.
+     * @param featureBiases hidden biases.
+     * @param outputWeights 2 * hidden weights, side to move first.
+     * @param outputBias The output bias.
+     */
+    public NnueNetwork(int hidden, short[] featureWeights, short[] featureBiases, short[] outputWeights, short outputBias) {
+        if (hidden <= 0 || featureWeights.length != INPUTS * hidden
+                || featureBiases.length != hidden || outputWeights.length != 2 * hidden) {
+            throw new IllegalArgumentException("Weights do not match hidden size " + hidden + ".");
+        }
+
+        this.hidden = hidden;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Load a network file (see class doc), the file is memory mapped.
+     * @param file The file.
+     * @return The network.
+     * @throws IOException The file could not be read.
+     * @throws IllegalArgumentException The file is not a network file.
+     */
+    public static NnueNetwork load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a network file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported network version " + version + ".");
+            }
+            int hidden = buffer.getInt();
+            if (hidden <= 0 || buffer.remaining() != weightBytes(hidden)) {
+                throw new IllegalArgumentException("Invalid network size: " + file);
+            }
+
+            short[] featureWeights = new short[INPUTS * hidden];
+            short[] featureBiases = new short[hidden];
+            short[] outputWeights = new short[2 * hidden];
+            buffer.asShortBuffer().get(featureWeights);
+            buffer.position(buffer.position() + featureWeights.length * 2);
+            buffer.asShortBuffer().get(featureBiases);
+            buffer.position(buffer.position() + featureBiases.length * 2);
+            buffer.asShortBuffer().get(outputWeights);
+            buffer.position(buffer.position() + outputWeights.length * 2);
+
+            return new NnueNetwork(hidden, featureWeights, featureBiases, outputWeights, buffer.getShort());
+        }
+    }
+
+    /**
+     * Write this network in the file format (see class doc).
+     * @param file The file, replaced if it exists.
+     * @throws IOException The file could not be written.
+     */
+    public void save(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + weightBytes(hidden)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hidden);
+        for (short w : featureWeights) {
+            buffer.putShort(w);
+        }
+        for (short b : featureBiases) {
+            buffer.putShort(b);
+        }
+        for (short w : outputWeights) {
+            buffer.putShort(w);
+        }
+        buffer.putShort(outputBias);
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * A network with small random weights, for benchmarks and tests.
+     * @param hidden The accumulator size.
+     * @param seed The random seed.
+     */
+    public static NnueNetwork random(int hidden, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] featureWeights = new short[INPUTS * hidden];
+        short[] featureBiases = new short[hidden];
+        short[] outputWeights = new short[2 * hidden];
+        for (int i=0; i<featureWeights.length; i++) {
+            featureWeights[i] = (short) random.nextInt(-32, 33);
+        }
+        for (int i=0; i<hidden; i++) {
+            featureBiases[i] = (short) random.nextInt(0, 64);
+        }
+        for (int i=0; i<outputWeights.length; i++) {
+            outputWeights[i] = (short) random.nextInt(-64, 65);
+        }
+        return new NnueNetwork(hidden, featureWeights, featureBiases, outputWeights, (short) 0);
+    }
+
+    private static int weightBytes(int hidden) {
+        return 2 * (INPUTS * hidden + hidden + 2 * hidden + 1);
+    }
+
+    /**
+     * The input index of a piece from the view of a perspective:
+     * own pieces first, squares mirrored vertically for black.
+     * @param perspective The perspective color ordinal.
+     * @param color The piece color ordinal.
+     * @param type The piece type.
+     * @param square The square index (0-63).
+     */
+    static int feature(int perspective, int color, int type, int square) {
+        int relativeSquare = perspective == Color.WHITE.ordinal() ? square : square ^ 56;
+        int side = color == perspective ? 0 : 1;
+        return (side * 6 + type) * 64 + relativeSquare;
+    }
+
+    public int getHidden() {
+        return hidden;
+    }
+
+    short[] getFeatureWeights() {
+        return featureWeights;
+    }
+
+    short[] getFeatureBiases() {
+        return featureBiases;
+    }
+
+    short[] getOutputWeights() {
+        return outputWeights;
+    }
+
+    short getOutputBias() {
+        return outputBias;
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.bitfexl.javachess.eval;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.PieceSquareTables;
+
+/**
+ * Material and tapered piece-square tables, O(1):
+ * the board keeps the sums up to date on every change.
+ * Stateless, may be shared between threads.
+ */
+public class PstEvaluator implements Evaluator {
+    @Override
+    public int evaluate(Board board) {
+        int score = PieceSquareTables.taper(board.getMidgameScore(), board.getEndgameScore(), board.getPhase());
+        return board.getSideToMove() == Color.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,227 @@
+package com.github.bitfexl.javachess.game;
+
+/**
+ * Helpers for 64 bit board sets.
+ * Square index: a1 = 0, b1 = 1, ..., h8 = 63.
+ */
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+    public static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
+    /*
+     * Ray directions.
+     * The first four directions increase the square index.
+     */
+    public static final int NORTH = 0;
+    public static final int EAST = 1;
+    public static final int NORTH_EAST = 2;
+    public static final int NORTH_WEST = 3;
+    public static final int SOUTH = 4;
+    public static final int WEST = 5;
+    public static final int SOUTH_WEST = 6;
+    public static final int SOUTH_EAST = 7;
+
+    private static final int[] FILE_DELTA = {0, 1, 1, -1, 0, -1, -1, 1};
+    private static final int[] RANK_DELTA = {1, 0, 1, 1, -1, 0, -1, -1};
+
+    /**
+     * [direction][square]: all squares in that direction, excluding the square.
+     */
+    private static final long[][] RAYS = new long[8][64];
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * [color.ordinal()][square]: squares attacked by a pawn of that color.
+     */
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /**
+     * [from][to]: squares strictly between two aligned squares, else empty.
+     */
+    private static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * [from][to]: the full line through two aligned squares, else empty.
+     */
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        final int[][] knightJumps = {{2, 1}, {1, 2}, {-2, 1}, {-1, 2}, {-2, -1}, {-1, -2}, {2, -1}, {1, -2}};
+
+        for (int square=0; square<64; square++) {
+            int file = file(square);
+            int rank = rank(square);
+
+            for (int d=0; d<8; d++) {
+                for (int f=file+FILE_DELTA[d], r=rank+RANK_DELTA[d]; Board.checkInBounds(f) && Board.checkInBounds(r); f+=FILE_DELTA[d], r+=RANK_DELTA[d]) {
+                    RAYS[d][square] |= bit(square(f, r));
+                }
+                KING_ATTACKS[square] |= safeBit(file + FILE_DELTA[d], rank + RANK_DELTA[d]);
+            }
+
+            for (int[] jump : knightJumps) {
+                KNIGHT_ATTACKS[square] |= safeBit(file + jump[0], rank + jump[1]);
+            }
+
+            PAWN_ATTACKS[Color.WHITE.ordinal()][square] = safeBit(file - 1, rank + 1) | safeBit(file + 1, rank + 1);
+            PAWN_ATTACKS[Color.BLACK.ordinal()][square] = safeBit(file - 1, rank - 1) | safeBit(file + 1, rank - 1);
+        }
+
+        for (int square=0; square<64; square++) {
+            for (int d=0; d<8; d++) {
+                int opposite = (d + 4) % 8;
+                for (long set = RAYS[d][square]; set != 0; set &= set - 1) {
+                    int to = first(set);
+                    BETWEEN[square][to] = RAYS[d][square] & RAYS[opposite][to];
+                    LINE[square][to] = RAYS[d][square] | RAYS[opposite][square] | bit(square);
+                }
+            }
+        }
+    }
+
+    private static long safeBit(int file, int rank) {
+        return Board.checkInBounds(file) && Board.checkInBounds(rank) ? bit(square(file, rank)) : 0;
+    }
+
+    private Bitboards() { }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Squares attacked (diagonally) by a pawn.
+     * @param square The square of the pawn.
+     * @param color The color of the pawn.
+     */
+    public static long pawnAttacks(int square, Color color) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * All squares in a direction, up to the board edge.
+     * @param direction The direction (NORTH to SOUTH_EAST).
+     * @param square The origin (excluded).
+     */
+    public static long ray(int direction, int square) {
+        return RAYS[direction][square];
+    }
+
+    /**
+     * Squares strictly between two squares on a common line.
+     * @return The squares or an empty set if not aligned.
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * The full line (edge to edge) through two different squares.
+     * @return The squares or an empty set if not aligned.
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Squares attacked in a direction, up to and including the first blocker.
+     * @param direction The direction (NORTH to SOUTH_EAST).
+     * @param square The origin (excluded).
+     * @param occupied The occupied squares.
+     */
+    public static long rayAttacks(int direction, int square, long occupied) {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupied;
+        if (blockers == 0) {
+            return ray;
+        }
+        int blocker = direction < SOUTH ? first(blockers) : last(blockers);
+        return ray ^ RAYS[direction][blocker];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return rayAttacks(NORTH, square, occupied) | rayAttacks(EAST, square, occupied)
+                | rayAttacks(SOUTH, square, occupied) | rayAttacks(WEST, square, occupied);
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return rayAttacks(NORTH_EAST, square, occupied) | rayAttacks(NORTH_WEST, square, occupied)
+                | rayAttacks(SOUTH_WEST, square, occupied) | rayAttacks(SOUTH_EAST, square, occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Get the square index for a file and rank.
+     * @param file The file (1-8).
+     * @param rank The rank (1-8).
+     * @return The square index (0-63).
+     */
+    public static int square(int file, int rank) {
+        return (rank - 1) * 8 + file - 1;
+    }
+
+    /**
+     * The file of a square.
+     * @param square The square index (0-63).
+     * @return The file (1-8).
+     */
+    public static int file(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * The rank of a square.
+     * @param square The square index (0-63).
+     * @return The rank (1-8).
+     */
+    public static int rank(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * A set containing only the given square.
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * The lowest square in a non-empty set.
+     */
+    public static int first(long set) {
+        return Long.numberOfTrailingZeros(set);
+    }
+
+    /**
+     * The highest square in a non-empty set.
+     */
+    public static int last(long set) {
+        return 63 - Long.numberOfLeadingZeros(set);
+    }
+
+    /**
+     * Number of squares in a set.
+     */
+    public static int count(long set) {
+        return Long.bitCount(set);
+    }
+
+    /**
+     * Name of a square (e.g. "e4").
+     */
+    public static String toString(int square) {
+        return "" + "abcdefgh".charAt(square & 7) + rank(square);
+    }
+}
@@ -2,11 +2,7 @@ package com.github.bitfexl.javachess.game;
 
 import com.github.bitfexl.javachess.pieces.*;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.Stack;
-import java.util.stream.Collectors;
+import java.util.*;
 
 public class Board {
     /**
@@ -29,12 +25,75 @@ public class Board {
         }
     }
 
-    private final Map<Coordinates, Piece> board = new HashMap<>();
+    /**
+     * No square, e.g. no en passant target.
+     */
+    public static final int NO_SQUARE = -1;
+
+    // 21 bits in the state stack, see packState()
+    static final int MAX_HALFMOVE_CLOCK = (1 << 21) - 1;
+
+    // mailbox, square index see Bitboards
+    private final Piece[] squares = new Piece[64];
+
+    // [color.ordinal()][piece type]
+    private final long[][] pieceSets = new long[2][Piece.TYPE_COUNT];
+
+    // [color.ordinal()]
+    private final long[] colorSets = new long[2];
+
+    private long occupied;
+
+    // cached attack information per color, see updateAttackInfo()
+    private final long[] attacks = new long[2];
+    private final long[] checkers = new long[2];
+    private final long[] pinned = new long[2];
+    private final boolean[] attackInfoValid = new boolean[2];
+
+    // played moves, packed (see PackedMove)
+    private int[] moveStack = new int[64];
+
+    // captured piece of each move in moveStack, if any
+    private Piece[] capturedPieces = new Piece[64];
+
+    // irreversible state before each move in moveStack, see packState()
+    private int[] stateStack = new int[64];
+
+    // position key before each move in moveStack, for repetitions
+    private long[] hashStack = new long[64];
+
+    private int moveCount;
+
+    private Color sideToMove = Color.WHITE;
+
+    // see CastlingRights
+    private int castlingRights;
+
+    private int enPassantSquare = NO_SQUARE;
+
+    // plies since the last capture or pawn move
+    private int halfmoveClock;
 
-    private Stack<Move> moveStack = new Stack<>();
+    private int fullmoveNumber = 1;
 
-    // moveStack size after move and captured piece, if any
-    private Map<Integer, Piece> capturedPieces = new HashMap<>();
+    // position key, updated incrementally (see Zobrist)
+    private long hash;
+
+    // compare hash to a full recalculation after every change
+    private boolean hashValidation = Boolean.getBoolean("javachess.validateHash");
+
+    // evaluation terms, updated incrementally (see PieceSquareTables)
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+
+    // compare evaluation terms to a full recalculation after every change
+    private boolean evalValidation = Boolean.getBoolean("javachess.validateEval");
+
+    private PieceListener pieceListener;
+
+    // the last snapshot, reused while the position key is unchanged
+    private BoardSnapshot snapshot = BoardSnapshot.EMPTY;
 
     public Board() {
         reset();
@@ -52,21 +111,125 @@ public class Board {
      * @return true: in check or checkmate, false: not in check;
      */
     public boolean isInCheck(Color color) {
-        for (Coordinates coordinates : board.keySet()) {
-            Piece piece = get(coordinates);
-            if (piece.getColor() == color) {
-                continue;
+        if (attackInfoValid[color.ordinal()]) {
+            return checkers[color.ordinal()] != 0;
+        }
+
+        for (long kings = pieceSets[color.ordinal()][Piece.KING]; kings != 0; kings &= kings - 1) {
+            if (isSquareAttacked(Bitboards.first(kings), color.opponent())) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a square is attacked by a player.
+     * Casts rays and jump patterns outward from the square.
+     * @param square The square index (0-63), see Bitboards.
+     * @param byColor The attacking player.
+     * @return true: attacked, false: not attacked;
+     */
+    public boolean isSquareAttacked(int square, Color byColor) {
+        return getAttackers(square, byColor, occupied) != 0;
+    }
+
+    /**
+     * Checks if a square is attacked by a player.
+     * @param coordinates The square.
+     * @param byColor The attacking player.
+     * @return true: attacked, false: not attacked;
+     */
+    public boolean isSquareAttacked(Coordinates coordinates, Color byColor) {
+        return isSquareAttacked(coordinates.getSquare(), byColor);
+    }
 
-            for (Move move : piece.getValidMoves(this, coordinates)) {
-                Piece king = get(move.getToFile(), move.getToRank());
-                if (king instanceof King && king.getColor() == color) {
-                    return true;
+    /**
+     * Get all pieces of a player attacking a square.
+     * @param square The square index (0-63), see Bitboards.
+     * @param byColor The attacking player.
+     * @param occupied The occupied squares to use for sliding pieces.
+     * @return The squares of the attacking pieces.
+     */
+    public long getAttackers(int square, Color byColor, long occupied) {
+        long[] pieces = pieceSets[byColor.ordinal()];
+        long queens = pieces[Piece.QUEEN];
+        return (Bitboards.pawnAttacks(square, byColor.opponent()) & pieces[Piece.PAWN])
+                | (Bitboards.knightAttacks(square) & pieces[Piece.KNIGHT])
+                | (Bitboards.kingAttacks(square) & pieces[Piece.KING])
+                | (Bitboards.bishopAttacks(square, occupied) & (pieces[Piece.BISHOP] | queens))
+                | (Bitboards.rookAttacks(square, occupied) & (pieces[Piece.ROOK] | queens));
+    }
+
+    /**
+     * Get all squares attacked by a player.
+     * @param color The attacking player.
+     * @return The attacked squares, may include own pieces.
+     */
+    public long getAttacks(Color color) {
+        updateAttackInfo(color);
+        return attacks[color.ordinal()];
+    }
+
+    /**
+     * Get the pieces giving check to a player.
+     * @param color The player in check.
+     * @return The squares of the opposing pieces attacking the king.
+     */
+    public long getCheckers(Color color) {
+        updateAttackInfo(color);
+        return checkers[color.ordinal()];
+    }
+
+    /**
+     * Get the pieces of a player pinned to their king.
+     * @param color The player owning the pinned pieces.
+     * @return The squares of the pinned pieces.
+     */
+    public long getPinned(Color color) {
+        updateAttackInfo(color);
+        return pinned[color.ordinal()];
+    }
+
+    /**
+     * Recalculate attacks, checkers and pinned pieces
+     * of a player if the position changed since the last call.
+     */
+    private void updateAttackInfo(Color color) {
+        final int c = color.ordinal();
+        if (attackInfoValid[c]) {
+            return;
+        }
+
+        long attacked = 0;
+        for (long set = colorSets[c]; set != 0; set &= set - 1) {
+            int square = Bitboards.first(set);
+            attacked |= MoveGenerator.attacks(squares[square].getType(), square, color, occupied);
+        }
+
+        long check = 0;
+        long pin = 0;
+        Color opponent = color.opponent();
+        long[] enemies = pieceSets[opponent.ordinal()];
+
+        for (long kings = pieceSets[c][Piece.KING]; kings != 0; kings &= kings - 1) {
+            int king = Bitboards.first(kings);
+            check |= getAttackers(king, opponent, occupied);
+
+            long snipers = (Bitboards.rookAttacks(king, 0) & (enemies[Piece.ROOK] | enemies[Piece.QUEEN]))
+                    | (Bitboards.bishopAttacks(king, 0) & (enemies[Piece.BISHOP] | enemies[Piece.QUEEN]));
+            for (; snipers != 0; snipers &= snipers - 1) {
+                long blockers = Bitboards.between(king, Bitboards.first(snipers)) & occupied;
+                if (Bitboards.count(blockers) == 1) {
+                    pin |= blockers & colorSets[c];
                 }
             }
         }
 
-        return false;
+        attacks[c] = attacked;
+        checkers[c] = check;
+        pinned[c] = pin;
+        attackInfoValid[c] = true;
     }
 
     /**
@@ -75,9 +238,7 @@ public class Board {
      * @return true: checkmate, false: not checkmate;
      */
     public boolean isCheckMate(Color color) {
-        return isInCheck(color) && getCoordinates(Piece.class, color).stream()
-                .map(c -> board.get(c).getTrueValidMoves(this, c).size())
-                .reduce(0, Integer::sum) == 0;
+        return isInCheck(color) && !MoveGenerator.hasLegalMove(this, color);
     }
 
     /**
@@ -87,10 +248,82 @@ public class Board {
      *         false: nextPlayer has valid moves or is in check/checkmate;
      */
     public boolean isStaleMate(Color nextPlayer) {
-        return !isInCheck(nextPlayer) && getCoordinates(Piece.class, nextPlayer).stream()
-                .map(c -> board.get(c).getTrueValidMoves(this, c).size())
-                .reduce(0, Integer::sum) == 0;
+        return !isInCheck(nextPlayer) && !MoveGenerator.hasLegalMove(this, nextPlayer);
+    }
+
+    /**
+     * How often the current position occurred before. Only positions since the
+     * last capture or pawn move (see getHalfmoveClock()) can be equal, so only
+     * those are compared.
+     * @return The number of earlier occurrences, 0 if the position is new.
+     */
+    public int getRepetitionCount() {
+        int count = 0;
+        int plies = Math.min(halfmoveClock, moveCount);
+        // at least 4 plies to get back, same side to move every 2 plies
+        for (int i=4; i<=plies; i+=2) {
+            if (hashStack[moveCount - i] == hash) {
+                count++;
+            }
+        }
+        return count;
+    }
 
+    /**
+     * Checks if the current position occurred before (draw by repetition in search).
+     * @return true: repeated at least once, false: new position;
+     */
+    public boolean isRepetition() {
+        return getRepetitionCount() > 0;
+    }
+
+    /**
+     * Checks if the current position occurred for the third time.
+     * @return true: draw by threefold repetition, false: no draw;
+     */
+    public boolean isThreefoldRepetition() {
+        return getRepetitionCount() >= 2;
+    }
+
+    /**
+     * Checks the fifty-move rule. A checkmate on the last move
+     * takes precedence (see isCheckMate()).
+     * @return true: no capture or pawn move in the last 50 moves, false: otherwise;
+     */
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * Checks if no side can checkmate with the remaining pieces:
+     * bare kings, a single knight or bishop or only bishops on squares of one color.
+     * @return true: draw by insufficient material, false: checkmate still possible;
+     */
+    public boolean isInsufficientMaterial() {
+        long heavy = 0;
+        long knights = 0;
+        long bishops = 0;
+        for (int c=0; c<2; c++) {
+            heavy |= pieceSets[c][Piece.PAWN] | pieceSets[c][Piece.ROOK] | pieceSets[c][Piece.QUEEN];
+            knights |= pieceSets[c][Piece.KNIGHT];
+            bishops |= pieceSets[c][Piece.BISHOP];
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        if (Bitboards.count(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & Bitboards.DARK_SQUARES) == 0 || (bishops & ~Bitboards.DARK_SQUARES) == 0);
+    }
+
+    /**
+     * Checks for a draw by threefold repetition, the fifty-move rule or insufficient material.
+     * Stalemate is checked by isStaleMate().
+     * @return true: draw, false: game goes on;
+     */
+    public boolean isDraw() {
+        return isThreefoldRepetition() || isFiftyMoveRule() || isInsufficientMaterial();
     }
 
     /**
@@ -100,9 +333,41 @@ public class Board {
      * @return A set of coordinates of the matching pieces, may be empty set.
      */
     public Set<Coordinates> getCoordinates(Class<? extends Piece> pieceType, Color color) {
-        return board.keySet().stream()
-                .filter(c -> pieceType.isAssignableFrom(get(c).getClass()) && get(c).getColor() == color)
-                .collect(Collectors.toUnmodifiableSet());
+        Set<Coordinates> coordinates = new HashSet<>();
+        for (long set = colorSets[color.ordinal()]; set != 0; set &= set - 1) {
+            int square = Bitboards.first(set);
+            if (pieceType.isAssignableFrom(squares[square].getClass())) {
+                coordinates.add(Coordinates.of(square));
+            }
+        }
+        return Collections.unmodifiableSet(coordinates);
+    }
+
+    /**
+     * Get all squares occupied by a piece type.
+     * @param type The piece type (see Piece.getType()).
+     * @param color The color of the pieces.
+     * @return The set of squares (see Bitboards).
+     */
+    public long getPieces(int type, Color color) {
+        return pieceSets[color.ordinal()][type];
+    }
+
+    /**
+     * Get all squares occupied by a player.
+     * @param color The color of the pieces.
+     * @return The set of squares (see Bitboards).
+     */
+    public long getPieces(Color color) {
+        return colorSets[color.ordinal()];
+    }
+
+    /**
+     * Get all occupied squares.
+     * @return The set of squares (see Bitboards).
+     */
+    public long getOccupied() {
+        return occupied;
     }
 
     /**
@@ -112,22 +377,80 @@ public class Board {
      * @param move The move to play.
      */
     public void move(Move move) {
-        Piece piece = get(move.getFromFile(), move.getFromRank());
+        move(move.toPacked());
+    }
+
+    /**
+     * Play a packed move (see PackedMove). Does not get played
+     * if the piece at the starting pos in null.
+     * Does not check for check or check mate.
+     * @param move The move to play.
+     */
+    public void move(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+
+        Piece piece = squares[from];
         if (piece == null) {
             return;
         }
 
-        if (move instanceof PromotionMove pMove) {
-            piece = pMove.getPiece();
+        if (PackedMove.isPromotion(move)) {
+            piece = Piece.of(PackedMove.promotion(move), piece.getColor());
         }
 
-        Piece captured = set(move.getToFile(), move.getToRank(), piece);
-        set(move.getFromFile(), move.getFromRank(), null);
+        boolean pawnMove = squares[from].getType() == Piece.PAWN;
+        int state = packState();
+        long key = hash;
+
+        Piece captured = set(to, piece);
+        set(from, null);
+
+        // special moves, detected from the board state
+        if (piece.getType() == Piece.KING && Math.abs(to - from) == 2) {
+            // castle, the rook jumps over the king
+            set((from + to) / 2, set(to > from ? from + 3 : from - 4, null));
+        } else if (pawnMove && to == enPassantSquare && (to - from) % 8 != 0) {
+            // en passant, the captured pawn is behind the target square
+            captured = set(piece.getColor() == Color.WHITE ? to - 8 : to + 8, null);
+        }
 
-        moveStack.push(move);
-        capturedPieces.put(moveStack.size(), captured);
+        if (moveCount == moveStack.length) {
+            moveStack = Arrays.copyOf(moveStack, moveCount * 2);
+            capturedPieces = Arrays.copyOf(capturedPieces, moveCount * 2);
+            stateStack = Arrays.copyOf(stateStack, moveCount * 2);
+            hashStack = Arrays.copyOf(hashStack, moveCount * 2);
+        }
+        moveStack[moveCount] = move;
+        capturedPieces[moveCount] = captured;
+        stateStack[moveCount] = state;
+        hashStack[moveCount] = key;
+        moveCount++;
+
+        setCastlingRights(CastlingRights.update(castlingRights, from, to));
+
+        // only set if it can be captured, so equal positions have equal keys
+        int target = NO_SQUARE;
+        if (pawnMove && Math.abs(to - from) == 16) {
+            int square = (from + to) / 2;
+            Color opponent = piece.getColor().opponent();
+            if ((Bitboards.pawnAttacks(square, piece.getColor()) & pieceSets[opponent.ordinal()][Piece.PAWN]) != 0) {
+                target = square;
+            }
+        }
+        setEnPassantSquare(target);
 
-        // todo: special moves (castle)
+        halfmoveClock = pawnMove || captured != null ? 0 : halfmoveClock + 1;
+        if (sideToMove == Color.BLACK) {
+            fullmoveNumber++;
+        }
+
+        sideToMove = sideToMove.opponent();
+        hash ^= Zobrist.blackToMove();
+
+        if (hashValidation) {
+            validateHash();
+        }
     }
 
     /**
@@ -135,38 +458,318 @@ public class Board {
      * @return The move which has been undone or null -> initial position reached.
      */
     public Move undo() {
-        if (moveStack.isEmpty()) {
+        if (moveCount == 0) {
             return null;
         }
+        return Move.of(undoMove());
+    }
+
+    /**
+     * Undo the last move without creating a Move view.
+     * @return The packed move which has been undone or PackedMove.NONE -> initial position reached.
+     */
+    public int undoMove() {
+        if (moveCount == 0) {
+            return PackedMove.NONE;
+        }
 
-        Piece capturedPiece = capturedPieces.get(moveStack.size());
-        Move move = moveStack.pop();
+        moveCount--;
+        sideToMove = sideToMove.opponent();
+        hash ^= Zobrist.blackToMove();
+        if (sideToMove == Color.BLACK) {
+            fullmoveNumber--;
+        }
+        unpackState(stateStack[moveCount]);
+        int move = moveStack[moveCount];
+        Piece capturedPiece = capturedPieces[moveCount];
+        capturedPieces[moveCount] = null;
+
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        Piece piece = squares[to];
 
-        Piece piece = get(move.getToFile(), move.getToRank());
+        if (PackedMove.isPromotion(move)) {
+            piece = Piece.of(Piece.PAWN, piece.getColor());
+        }
 
-        if (move instanceof PromotionMove) {
-            piece = new Pawn(piece.getColor());
+        set(from, piece);
+        if (piece.getType() == Piece.KING && Math.abs(to - from) == 2) {
+            set(to, null);
+            set(to > from ? from + 3 : from - 4, set((from + to) / 2, null));
+        } else if (piece.getType() == Piece.PAWN && to == enPassantSquare && (to - from) % 8 != 0) {
+            set(to, null);
+            set(piece.getColor() == Color.WHITE ? to - 8 : to + 8, capturedPiece);
+        } else {
+            set(to, capturedPiece);
         }
 
-        set(move.getFromFile(), move.getFromRank(), piece);
-        set(move.getToFile(), move.getToRank(), capturedPiece);
+        if (hashValidation) {
+            validateHash();
+        }
 
         return move;
     }
 
+    /**
+     * The player to move next. Changes with every move and undo.
+     */
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Set the player to move next. Does not affect history.
+     * @param sideToMove The player to move next.
+     */
+    public void setSideToMove(Color sideToMove) {
+        if (this.sideToMove != sideToMove) {
+            hash ^= Zobrist.blackToMove();
+        }
+        this.sideToMove = sideToMove;
+    }
+
+    /**
+     * The castling rights (see CastlingRights).
+     * Updated by move and undo.
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Set the castling rights. Does not affect history.
+     * @param castlingRights The rights (see CastlingRights).
+     */
+    public void setCastlingRights(int castlingRights) {
+        if ((castlingRights & ~CastlingRights.ALL) != 0) {
+            throw new IllegalArgumentException("Invalid castling rights " + castlingRights + ".");
+        }
+        hash ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    /**
+     * The en passant target square, the square a pawn skipped
+     * with a double push in the last move. Only set by moves if
+     * a pawn can capture en passant.
+     * @return The square index (0-63) or NO_SQUARE.
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Set the en passant target square. Does not affect history.
+     * @param enPassantSquare The square index (0-63) or NO_SQUARE.
+     */
+    public void setEnPassantSquare(int enPassantSquare) {
+        if (enPassantSquare < NO_SQUARE || enPassantSquare > 63) {
+            throw new IllegalArgumentException("Invalid en passant square " + enPassantSquare + ".");
+        }
+        if (this.enPassantSquare != NO_SQUARE) {
+            hash ^= Zobrist.enPassant(this.enPassantSquare);
+        }
+        if (enPassantSquare != NO_SQUARE) {
+            hash ^= Zobrist.enPassant(enPassantSquare);
+        }
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    /**
+     * Plies since the last capture or pawn move (fifty-move rule).
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Set the halfmove clock. Does not affect history.
+     * @param halfmoveClock Plies since the last capture or pawn move.
+     */
+    public void setHalfmoveClock(int halfmoveClock) {
+        if (halfmoveClock < 0 || halfmoveClock > MAX_HALFMOVE_CLOCK) {
+            throw new IllegalArgumentException("Invalid halfmove clock " + halfmoveClock + ".");
+        }
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * The move number, starts at 1 and increases after every black move.
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Set the move number. Does not affect history.
+     * @param fullmoveNumber The move number (at least 1).
+     */
+    public void setFullmoveNumber(int fullmoveNumber) {
+        if (fullmoveNumber < 1) {
+            throw new IllegalArgumentException("Invalid fullmove number " + fullmoveNumber + ".");
+        }
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Castling rights (4 bits), en passant square + 1 (7 bits)
+     * and halfmove clock (21 bits) in one int.
+     */
+    private int packState() {
+        return castlingRights | (enPassantSquare + 1) << 4 | halfmoveClock << 11;
+    }
+
+    private void unpackState(int state) {
+        setCastlingRights(state & 0xF);
+        setEnPassantSquare(((state >>> 4) & 0x7F) - 1);
+        halfmoveClock = state >>> 11;
+    }
+
+    /**
+     * The position key (see Zobrist).
+     * Updated incrementally on every change.
+     * @return The 64 bit key of pieces, side to move, castling rights and en passant file.
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Compare the incremental position key against a full
+     * recalculation after every change (slow, for debugging).
+     * Defaults to the system property javachess.validateHash.
+     * @param hashValidation true: validate, false: do not validate;
+     */
+    public void setHashValidation(boolean hashValidation) {
+        this.hashValidation = hashValidation;
+    }
+
+    /**
+     * @throws IllegalStateException The incremental key does not match.
+     */
+    private void validateHash() {
+        long expected = Zobrist.compute(this);
+        if (hash != expected) {
+            throw new IllegalStateException("Incremental hash " + Long.toHexString(hash)
+                    + " does not match " + Long.toHexString(expected) + ".");
+        }
+    }
+
+    /**
+     * Sum of the middlegame piece-square values (see PieceSquareTables).
+     * Updated incrementally on every change.
+     * @return The white minus black balance in centipawns.
+     */
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+
+    /**
+     * Sum of the endgame piece-square values (see PieceSquareTables).
+     * Updated incrementally on every change.
+     * @return The white minus black balance in centipawns.
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * The game phase of the remaining material.
+     * @return PieceSquareTables.MAX_PHASE (initial position, exceeded after promotions) to 0 (pawns and kings only).
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Compare the incremental evaluation terms against a full
+     * recalculation after every change (slow, for debugging).
+     * Defaults to the system property javachess.validateEval.
+     * @param evalValidation true: validate, false: do not validate;
+     */
+    public void setEvalValidation(boolean evalValidation) {
+        this.evalValidation = evalValidation;
+    }
+
+    /**
+     * @throws IllegalStateException The incremental terms do not match.
+     */
+    private void validateEval() {
+        int midgame = 0;
+        int endgame = 0;
+        int expectedPhase = 0;
+        for (long set = occupied; set != 0; set &= set - 1) {
+            int square = Bitboards.first(set);
+            midgame += PieceSquareTables.midgame(squares[square], square);
+            endgame += PieceSquareTables.endgame(squares[square], square);
+            expectedPhase += PieceSquareTables.phase(squares[square]);
+        }
+        if (midgameScore != midgame || endgameScore != endgame || phase != expectedPhase) {
+            throw new IllegalStateException("Incremental evaluation (" + midgameScore + ", " + endgameScore + ", " + phase
+                    + ") does not match (" + midgame + ", " + endgame + ", " + expectedPhase + ").");
+        }
+    }
+
+    /**
+     * Set a listener notified about every piece change.
+     * Not copied by copyTo().
+     * @param pieceListener The listener or null.
+     */
+    public void setPieceListener(PieceListener pieceListener) {
+        this.pieceListener = pieceListener;
+    }
+
+    /**
+     * Number of played moves.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
     /**
      * Copy the current board. Pieces and moves remain the same.
      * @param other The board to copy to.
      */
     public void copyTo(Board other) {
-        other.board.clear();
-        other.board.putAll(board);
-
-        other.moveStack.clear();
-        other.moveStack.addAll(moveStack);
+        System.arraycopy(squares, 0, other.squares, 0, 64);
+        for (int i=0; i<2; i++) {
+            System.arraycopy(pieceSets[i], 0, other.pieceSets[i], 0, Piece.TYPE_COUNT);
+        }
+        System.arraycopy(colorSets, 0, other.colorSets, 0, 2);
+        other.occupied = occupied;
+        other.attackInfoValid[0] = false;
+        other.attackInfoValid[1] = false;
+
+        other.moveStack = Arrays.copyOf(moveStack, moveStack.length);
+        other.capturedPieces = Arrays.copyOf(capturedPieces, capturedPieces.length);
+        other.stateStack = Arrays.copyOf(stateStack, stateStack.length);
+        other.hashStack = Arrays.copyOf(hashStack, hashStack.length);
+        other.moveCount = moveCount;
+        other.sideToMove = sideToMove;
+        other.castlingRights = castlingRights;
+        other.enPassantSquare = enPassantSquare;
+        other.halfmoveClock = halfmoveClock;
+        other.fullmoveNumber = fullmoveNumber;
+        other.hash = hash;
+        other.midgameScore = midgameScore;
+        other.endgameScore = endgameScore;
+        other.phase = phase;
+
+        if (other.pieceListener != null) {
+            other.pieceListener.positionReplaced(other);
+        }
+    }
 
-        other.capturedPieces.clear();
-        other.capturedPieces.putAll(capturedPieces);
+    /**
+     * The pieces and the side to move, e.g. for rendering on another thread.
+     * Cheap if the position did not change since the last call (same instance).
+     * @return An immutable snapshot of the current position.
+     */
+    public BoardSnapshot snapshot() {
+        if (snapshot.hash() != hash) {
+            snapshot = BoardSnapshot.of(this);
+        }
+        return snapshot;
     }
 
     /**
@@ -174,8 +777,10 @@ public class Board {
      * @return The already played moves on this board.
      */
     public Move[] getMoves() {
-        Move[] moves = new Move[moveStack.size()];
-        moveStack.copyInto(moves);
+        Move[] moves = new Move[moveCount];
+        for (int i=0; i<moveCount; i++) {
+            moves[i] = Move.of(moveStack[i]);
+        }
         return moves;
     }
 
@@ -186,7 +791,9 @@ public class Board {
      * @return The piece or null.
      */
     public Piece get(int file, int rank) {
-        return get(new Coordinates(file, rank));
+        checkInBoundsException(file);
+        checkInBoundsException(rank);
+        return squares[Bitboards.square(file, rank)];
     }
 
     /**
@@ -195,7 +802,16 @@ public class Board {
      * @return The piece or null.
      */
     public Piece get(Coordinates coordinates) {
-        return board.get(coordinates);
+        return squares[coordinates.getSquare()];
+    }
+
+    /**
+     * Get a piece.
+     * @param square The square index (0-63), see Bitboards.
+     * @return The piece or null.
+     */
+    public Piece get(int square) {
+        return squares[square];
     }
 
     /**
@@ -206,7 +822,9 @@ public class Board {
      * @return The piece that was there before or null.
      */
     public Piece set(int file, int rank, Piece piece) {
-        return set(new Coordinates(file, rank), piece);
+        checkInBoundsException(file);
+        checkInBoundsException(rank);
+        return set(Bitboards.square(file, rank), piece);
     }
 
     /**
@@ -216,21 +834,99 @@ public class Board {
      * @return The piece that was there before or null.
      */
     public Piece set(Coordinates coordinates, Piece piece) {
-        Piece old = get(coordinates);
-        if (piece == null) {
-            board.remove(coordinates);
-        } else {
-            board.put(coordinates, piece);
+        return set(coordinates.getSquare(), piece);
+    }
+
+    /**
+     * Place a piece. Does not affect history.
+     * @param square The square index (0-63), see Bitboards.
+     * @param piece The piece.
+     * @return The piece that was there before or null.
+     */
+    public Piece set(int square, Piece piece) {
+        Piece old = squares[square];
+        long bit = Bitboards.bit(square);
+
+        if (old != null) {
+            hash ^= Zobrist.piece(old, square);
+            midgameScore -= PieceSquareTables.midgame(old, square);
+            endgameScore -= PieceSquareTables.endgame(old, square);
+            phase -= PieceSquareTables.phase(old);
+            if (pieceListener != null) {
+                pieceListener.pieceRemoved(old, square);
+            }
+            pieceSets[old.getColor().ordinal()][old.getType()] &= ~bit;
+            colorSets[old.getColor().ordinal()] &= ~bit;
+            occupied &= ~bit;
+        }
+
+        if (piece != null) {
+            hash ^= Zobrist.piece(piece, square);
+            midgameScore += PieceSquareTables.midgame(piece, square);
+            endgameScore += PieceSquareTables.endgame(piece, square);
+            phase += PieceSquareTables.phase(piece);
+            if (pieceListener != null) {
+                pieceListener.piecePlaced(piece, square);
+            }
+            pieceSets[piece.getColor().ordinal()][piece.getType()] |= bit;
+            colorSets[piece.getColor().ordinal()] |= bit;
+            occupied |= bit;
+        }
+
+        squares[square] = piece;
+        attackInfoValid[0] = false;
+        attackInfoValid[1] = false;
+
+        if (hashValidation) {
+            validateHash();
         }
+        if (evalValidation) {
+            validateEval();
+        }
+
         return old;
     }
 
+    /**
+     * Remove all pieces (empty board).
+     * Also resets move history, white to move,
+     * no castling rights, clocks.
+     */
+    public void clear() {
+        Arrays.fill(squares, null);
+        for (long[] sets : pieceSets) {
+            Arrays.fill(sets, 0);
+        }
+        Arrays.fill(colorSets, 0);
+        occupied = 0;
+        attackInfoValid[0] = false;
+        attackInfoValid[1] = false;
+
+        Arrays.fill(capturedPieces, 0, moveCount, null);
+        moveCount = 0;
+        sideToMove = Color.WHITE;
+        castlingRights = CastlingRights.NONE;
+        enPassantSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+
+        // empty board, white to move: all keys and sums are zero
+        hash = 0;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+
+        if (pieceListener != null) {
+            pieceListener.positionReplaced(this);
+        }
+    }
+
     /**
      * Set the board up (initial position).
      * Also resets move history.
      */
     public void reset() {
-        board.clear();
+        clear();
 
         set(1, 1, new Rook(Color.WHITE));
         set(2, 1, new Knight(Color.WHITE));
@@ -255,7 +951,6 @@ public class Board {
         set(7, 8, new Knight(Color.BLACK));
         set(8, 8, new Rook(Color.BLACK));
 
-        moveStack.clear();
-        capturedPieces.clear();
+        setCastlingRights(CastlingRights.ALL);
     }
 }
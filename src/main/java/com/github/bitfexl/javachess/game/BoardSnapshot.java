@@ -0,0 +1,89 @@
+package com.github.bitfexl.javachess.game;
+
+import com.github.bitfexl.javachess.pieces.Piece;
+
+/**
+ * The pieces and the side to move of a position, without history.
+ * Immutable, can be passed between threads freely (e.g. from the
+ * game to the EDT for rendering). See Board.snapshot().
+ */
+public final class BoardSnapshot {
+    /**
+     * A snapshot of an empty board, white to move.
+     */
+    public static final BoardSnapshot EMPTY = new BoardSnapshot(new byte[64], Color.WHITE, 0);
+
+    // by code(), index 0: empty
+    private static final Piece[] PIECES = new Piece[2 * Piece.TYPE_COUNT + 1];
+
+    static {
+        for (Color color : Color.values()) {
+            for (int type=Piece.PAWN; type<=Piece.KING; type++) {
+                PIECES[code(Piece.of(type, color))] = Piece.of(type, color);
+            }
+        }
+    }
+
+    // code(piece) by square index (see Bitboards), 0: empty
+    private final byte[] squares;
+
+    private final Color sideToMove;
+
+    private final long hash;
+
+    private BoardSnapshot(byte[] squares, Color sideToMove, long hash) {
+        this.squares = squares;
+        this.sideToMove = sideToMove;
+        this.hash = hash;
+    }
+
+    /**
+     * Take a snapshot of a board.
+     * @param board The board.
+     * @return The snapshot.
+     */
+    static BoardSnapshot of(Board board) {
+        byte[] squares = new byte[64];
+        for (long set = board.getOccupied(); set != 0; set &= set - 1) {
+            int square = Bitboards.first(set);
+            squares[square] = code(board.get(square));
+        }
+        return new BoardSnapshot(squares, board.getSideToMove(), board.hash());
+    }
+
+    private static byte code(Piece piece) {
+        return (byte) (piece.getColor().ordinal() * Piece.TYPE_COUNT + piece.getType() + 1);
+    }
+
+    /**
+     * Get a piece.
+     * @param square The square index (0-63), see Bitboards.
+     * @return The piece or null.
+     */
+    public Piece get(int square) {
+        return PIECES[squares[square]];
+    }
+
+    /**
+     * Get a piece.
+     * @param file The file (1-8).
+     * @param rank The rank (1-8).
+     * @return The piece or null.
+     */
+    public Piece get(int file, int rank) {
+        Board.checkInBoundsException(file);
+        Board.checkInBoundsException(rank);
+        return get(Bitboards.square(file, rank));
+    }
+
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * The position key of the board when the snapshot was taken (see Board.hash()).
+     */
+    public long hash() {
+        return hash;
+    }
+}
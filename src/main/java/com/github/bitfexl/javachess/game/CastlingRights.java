@@ -0,0 +1,75 @@
+package com.github.bitfexl.javachess.game;
+
+import java.util.Arrays;
+
+/**
+ * Castling rights, a 4 bit set.
+ */
+public final class CastlingRights {
+    public static final int NONE = 0;
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL = 15;
+
+    // rights kept when a piece moves from or to a square
+    private static final int[] KEEP = new int[64];
+
+    static {
+        Arrays.fill(KEEP, ALL);
+        KEEP[Bitboards.square(5, 1)] = ALL & ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        KEEP[Bitboards.square(8, 1)] = ALL & ~WHITE_KINGSIDE;
+        KEEP[Bitboards.square(1, 1)] = ALL & ~WHITE_QUEENSIDE;
+        KEEP[Bitboards.square(5, 8)] = ALL & ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        KEEP[Bitboards.square(8, 8)] = ALL & ~BLACK_KINGSIDE;
+        KEEP[Bitboards.square(1, 8)] = ALL & ~BLACK_QUEENSIDE;
+    }
+
+    private CastlingRights() { }
+
+    /**
+     * The rights after a move: moving the king or a rook
+     * or capturing a rook on its initial square removes them.
+     * @param rights The rights before the move.
+     * @param from The start square.
+     * @param to The target square.
+     * @return The remaining rights.
+     */
+    public static int update(int rights, int from, int to) {
+        return rights & KEEP[from] & KEEP[to];
+    }
+
+    /**
+     * The kingside right of a player.
+     */
+    public static int kingside(Color color) {
+        return color == Color.WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+    }
+
+    /**
+     * The queenside right of a player.
+     */
+    public static int queenside(Color color) {
+        return color == Color.WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+    }
+
+    /**
+     * The fen representation.
+     * @param rights The rights.
+     * @return e.g. "KQkq" or "-".
+     */
+    public static String toString(int rights) {
+        if (rights == NONE) {
+            return "-";
+        }
+
+        StringBuilder builder = new StringBuilder(4);
+        for (int i=0; i<4; i++) {
+            if ((rights & (1 << i)) != 0) {
+                builder.append("KQkq".charAt(i));
+            }
+        }
+        return builder.toString();
+    }
+}
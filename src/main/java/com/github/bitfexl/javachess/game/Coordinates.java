@@ -1,11 +1,38 @@
 package com.github.bitfexl.javachess.game;
 
-import java.util.Objects;
-
 /**
  * Coordinates on a check board.
  */
 public class Coordinates {
+    private static final Coordinates[] ALL = new Coordinates[64];
+
+    static {
+        for (int i=0; i<64; i++) {
+            ALL[i] = new Coordinates(Bitboards.file(i), Bitboards.rank(i));
+        }
+    }
+
+    /**
+     * Get shared coordinates for a square (no allocation).
+     * @param square The square index (0-63), see Bitboards.
+     * @return The coordinates of the square.
+     */
+    public static Coordinates of(int square) {
+        return ALL[square];
+    }
+
+    /**
+     * Get shared coordinates (no allocation).
+     * @param file The file (1-8).
+     * @param rank The rank (1-8).
+     * @throws IllegalArgumentException File or rank out of range.
+     */
+    public static Coordinates of(int file, int rank) {
+        Board.checkInBoundsException(file);
+        Board.checkInBoundsException(rank);
+        return ALL[Bitboards.square(file, rank)];
+    }
+
     private final int file;
     private final int rank;
 
@@ -30,6 +57,13 @@ public class Coordinates {
         return rank;
     }
 
+    /**
+     * The square index (0-63), see Bitboards.
+     */
+    public int getSquare() {
+        return Bitboards.square(file, rank);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -40,6 +74,11 @@ public class Coordinates {
 
     @Override
     public int hashCode() {
-        return Objects.hash(file, rank);
+        return getSquare();
+    }
+
+    @Override
+    public String toString() {
+        return Bitboards.toString(getSquare());
     }
 }
@@ -0,0 +1,343 @@
+package com.github.bitfexl.javachess.game;
+
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Load and write positions in Forsyth-Edwards Notation:
+ * piece placement, side to move, castling rights,
+ * en passant square, halfmove clock and move number.
+ * Fields after the placement are optional (EPD lines work too).
+ * Castling rights are only kept if the king and the rook are on
+ * their initial squares and the en passant square only if a pawn
+ * can capture, like after Board.move(), so the position key does
+ * not depend on whether a position was loaded or reached by moves.
+ * <p>
+ * Loading reads characters in place from a CharSequence or
+ * a ByteBuffer (ASCII) and does not allocate on the happy path.
+ */
+public final class Fen {
+    public static final String INITIAL = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECES = "pnbrqk";
+
+    // far above the longest possible game, keeps the parsing below int overflow
+    private static final int MAX_FULLMOVE_NUMBER = 1_000_000;
+
+    private Fen() { }
+
+    /**
+     * Load a position. Resets move history.
+     * @param board The board to load the position into.
+     * @param fen The position.
+     * @throws IllegalArgumentException Malformed fen.
+     */
+    public static void load(Board board, String fen) {
+        load(board, fen, 0, fen.length());
+    }
+
+    /**
+     * Load a position. Resets move history.
+     * @param board The board to load the position into.
+     * @param fen The position.
+     * @throws IllegalArgumentException Malformed fen.
+     */
+    public static void load(Board board, CharSequence fen) {
+        load(board, fen, 0, fen.length());
+    }
+
+    /**
+     * Load a position from a part of a char sequence. Resets move history.
+     * @param board The board to load the position into.
+     * @param chars The characters.
+     * @param start The index of the first character (inclusive).
+     * @param end The index of the last character (exclusive).
+     * @return The index after the last read field (e.g. EPD operations start there).
+     * @throws IllegalArgumentException Malformed fen.
+     */
+    public static int load(Board board, CharSequence chars, int start, int end) {
+        return parse(board, chars, null, start, end);
+    }
+
+    /**
+     * Load the next position from a buffer of lines (ASCII), blank
+     * lines are skipped. The position of the buffer is advanced past the
+     * line, the rest of the line (e.g. EPD operations) is ignored.
+     * @param board The board to load the position into.
+     * @param buffer The buffer, read from its position to its limit.
+     * @return true: a position has been loaded, false: no more lines;
+     * @throws IllegalArgumentException Malformed fen.
+     */
+    public static boolean load(Board board, ByteBuffer buffer) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+
+        while (start < limit && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        if (start == limit) {
+            buffer.position(limit);
+            return false;
+        }
+
+        int end = start;
+        while (end < limit && buffer.get(end) != '\n' && buffer.get(end) != '\r') {
+            end++;
+        }
+
+        parse(board, null, buffer, start, end);
+        buffer.position(end < limit ? end + 1 : limit);
+        return true;
+    }
+
+    /**
+     * Write a position.
+     * @param board The position.
+     * @return The fen of the position.
+     */
+    public static String toString(Board board) {
+        StringBuilder builder = new StringBuilder(90);
+        append(board, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Append the fen of a position.
+     * @param board The position.
+     * @param builder The builder to append to.
+     */
+    public static void append(Board board, StringBuilder builder) {
+        for (int rank=8; rank>=1; rank--) {
+            int empty = 0;
+            for (int file=1; file<=8; file++) {
+                Piece piece = board.get(Bitboards.square(file, rank));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    builder.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char c = PIECES.charAt(piece.getType());
+                builder.append(piece.getColor() == Color.WHITE ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) {
+                builder.append((char) ('0' + empty));
+            }
+            if (rank > 1) {
+                builder.append('/');
+            }
+        }
+
+        builder.append(board.getSideToMove() == Color.WHITE ? " w " : " b ");
+        builder.append(CastlingRights.toString(board.getCastlingRights()));
+        builder.append(' ');
+        if (board.getEnPassantSquare() == Board.NO_SQUARE) {
+            builder.append('-');
+        } else {
+            builder.append(Bitboards.toString(board.getEnPassantSquare()));
+        }
+        builder.append(' ').append(board.getHalfmoveClock());
+        builder.append(' ').append(board.getFullmoveNumber());
+    }
+
+    /**
+     * Parse from either chars or bytes.
+     * @return The index after the last read field.
+     */
+    private static int parse(Board board, CharSequence chars, ByteBuffer bytes, int start, int end) {
+        board.clear();
+
+        // placement
+        int i = skipWhitespace(chars, bytes, start, end);
+        int file = 1;
+        int rank = 8;
+        for (; i<end; i++) {
+            char c = charAt(chars, bytes, i);
+            if (c == ' ' || c == '\t') {
+                break;
+            } else if (c == '/') {
+                if (file != 9 || rank == 1) {
+                    throw invalid(chars, bytes, start, end);
+                }
+                file = 1;
+                rank--;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+                if (file > 9) {
+                    throw invalid(chars, bytes, start, end);
+                }
+            } else {
+                int type = PIECES.indexOf(Character.toLowerCase(c));
+                if (type < 0 || file > 8) {
+                    throw invalid(chars, bytes, start, end);
+                }
+                board.set(Bitboards.square(file, rank), Piece.of(type, Character.isUpperCase(c) ? Color.WHITE : Color.BLACK));
+                file++;
+            }
+        }
+        if (file != 9 || rank != 1) {
+            throw invalid(chars, bytes, start, end);
+        }
+
+        // side to move
+        i = skipWhitespace(chars, bytes, i, end);
+        if (i == end) {
+            return i;
+        }
+        char side = charAt(chars, bytes, i++);
+        if (side != 'w' && side != 'b') {
+            throw invalid(chars, bytes, start, end);
+        }
+        board.setSideToMove(side == 'w' ? Color.WHITE : Color.BLACK);
+
+        // castling rights
+        i = skipWhitespace(chars, bytes, i, end);
+        if (i == end) {
+            return i;
+        }
+        int rights = CastlingRights.NONE;
+        if (charAt(chars, bytes, i) == '-') {
+            i++;
+        } else {
+            for (; i<end && !isWhitespace(charAt(chars, bytes, i)); i++) {
+                int right = "KQkq".indexOf(charAt(chars, bytes, i));
+                if (right < 0) {
+                    throw invalid(chars, bytes, start, end);
+                }
+                rights |= 1 << right;
+            }
+        }
+        board.setCastlingRights(castlingRights(board, rights));
+
+        // en passant
+        i = skipWhitespace(chars, bytes, i, end);
+        if (i == end) {
+            return i;
+        }
+        if (charAt(chars, bytes, i) == '-') {
+            i++;
+        } else {
+            if (i + 1 >= end) {
+                throw invalid(chars, bytes, start, end);
+            }
+            int epFile = charAt(chars, bytes, i) - 'a' + 1;
+            int epRank = charAt(chars, bytes, i + 1) - '0';
+            if (!Board.checkInBounds(epFile) || !Board.checkInBounds(epRank)) {
+                throw invalid(chars, bytes, start, end);
+            }
+            board.setEnPassantSquare(enPassantTarget(board, Bitboards.square(epFile, epRank), chars, bytes, start, end));
+            i += 2;
+        }
+
+        // clocks, only if present (EPD operations may follow instead)
+        i = skipWhitespace(chars, bytes, i, end);
+        if (i == end || !isDigit(charAt(chars, bytes, i))) {
+            return i;
+        }
+        int halfmoveClock = 0;
+        for (; i<end && isDigit(charAt(chars, bytes, i)); i++) {
+            halfmoveClock = halfmoveClock * 10 + charAt(chars, bytes, i) - '0';
+            if (halfmoveClock > Board.MAX_HALFMOVE_CLOCK) {
+                throw invalid(chars, bytes, start, end);
+            }
+        }
+        board.setHalfmoveClock(halfmoveClock);
+
+        i = skipWhitespace(chars, bytes, i, end);
+        if (i == end || !isDigit(charAt(chars, bytes, i))) {
+            return i;
+        }
+        int fullmoveNumber = 0;
+        for (; i<end && isDigit(charAt(chars, bytes, i)); i++) {
+            fullmoveNumber = fullmoveNumber * 10 + charAt(chars, bytes, i) - '0';
+            if (fullmoveNumber > MAX_FULLMOVE_NUMBER) {
+                throw invalid(chars, bytes, start, end);
+            }
+        }
+        // some tools write move number 0, read as 1
+        board.setFullmoveNumber(Math.max(1, fullmoveNumber));
+
+        return i;
+    }
+
+    private static char charAt(CharSequence chars, ByteBuffer bytes, int index) {
+        return chars != null ? chars.charAt(index) : (char) (bytes.get(index) & 0xFF);
+    }
+
+    private static int skipWhitespace(CharSequence chars, ByteBuffer bytes, int index, int end) {
+        while (index < end && isWhitespace(charAt(chars, bytes, index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * The castling rights as Board.move() would leave them: a right
+     * needs the king and the rook on their initial squares.
+     * @param rights The rights of the fen.
+     * @return The rights the pieces allow.
+     */
+    private static int castlingRights(Board board, int rights) {
+        for (Color color : Color.values()) {
+            int rank = color == Color.WHITE ? 1 : 8;
+            Piece rook = Piece.of(Piece.ROOK, color);
+            if (board.get(Bitboards.square(5, rank)) != Piece.of(Piece.KING, color)) {
+                rights &= ~(CastlingRights.kingside(color) | CastlingRights.queenside(color));
+            }
+            if (board.get(Bitboards.square(8, rank)) != rook) {
+                rights &= ~CastlingRights.kingside(color);
+            }
+            if (board.get(Bitboards.square(1, rank)) != rook) {
+                rights &= ~CastlingRights.queenside(color);
+            }
+        }
+        return rights;
+    }
+
+    /**
+     * The en passant square as Board.move() would set it: only
+     * if it can be captured, so equal positions have equal keys.
+     * @param square The en passant square of the fen.
+     * @return The square or Board.NO_SQUARE.
+     * @throws IllegalArgumentException Not behind a pawn that just made a double push.
+     */
+    private static int enPassantTarget(Board board, int square, CharSequence chars, ByteBuffer bytes, int start, int end) {
+        Color us = board.getSideToMove();
+        Color them = us.opponent();
+        int pushed = us == Color.WHITE ? square - 8 : square + 8;
+        int origin = us == Color.WHITE ? square + 8 : square - 8;
+        if (Bitboards.rank(square) != (us == Color.WHITE ? 6 : 3)
+                || board.get(pushed) != Piece.of(Piece.PAWN, them)
+                || board.get(square) != null || board.get(origin) != null) {
+            throw invalid(chars, bytes, start, end);
+        }
+
+        if ((Bitboards.pawnAttacks(square, them) & board.getPieces(Piece.PAWN, us)) == 0) {
+            return Board.NO_SQUARE;
+        }
+        return square;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence chars, ByteBuffer bytes, int start, int end) {
+        if (chars != null) {
+            return new IllegalArgumentException("Invalid fen '" + chars.subSequence(start, end) + "'.");
+        }
+
+        byte[] line = new byte[end - start];
+        bytes.get(start, line);
+        return new IllegalArgumentException("Invalid fen '" + new String(line, StandardCharsets.US_ASCII)
+                + "' at byte " + start + ".");
+    }
+}
@@ -2,18 +2,25 @@ package com.github.bitfexl.javachess.game;
 
 /**
  * A immutable move on the chess board.
+ * View over a packed move (see PackedMove).
  */
 public class Move {
-    private final int fromFile;
-    private final int fromRank;
-    private final int toFile;
-    private final int toRank;
+    /**
+     * Get a view of a packed move.
+     * @param packed The packed move.
+     * @return A PromotionMove if the move is a promotion, a Move otherwise.
+     */
+    public static Move of(int packed) {
+        if (PackedMove.isPromotion(packed)) {
+            return new PromotionMove(packed);
+        }
+        return new Move(packed);
+    }
+
+    private final int packed;
 
     public Move(Coordinates from, Coordinates to) {
-        this.fromFile = from.getFile();
-        this.fromRank = from.getRank();
-        this.toFile = to.getFile();
-        this.toRank = to.getRank();
+        this(PackedMove.of(from.getSquare(), to.getSquare()));
     }
 
     public Move(int fromFile, int fromRank, int toFile, int toRank) {
@@ -21,26 +28,34 @@ public class Move {
         Board.checkInBoundsException(fromRank);
         Board.checkInBoundsException(toFile);
         Board.checkInBoundsException(toRank);
-        this.fromFile = fromFile;
-        this.fromRank = fromRank;
-        this.toFile = toFile;
-        this.toRank = toRank;
+        this.packed = PackedMove.of(Bitboards.square(fromFile, fromRank), Bitboards.square(toFile, toRank));
+    }
+
+    Move(int packed) {
+        this.packed = packed;
     }
 
     public int getFromFile() {
-        return fromFile;
+        return Bitboards.file(PackedMove.from(packed));
     }
 
     public int getFromRank() {
-        return fromRank;
+        return Bitboards.rank(PackedMove.from(packed));
     }
 
     public int getToFile() {
-        return toFile;
+        return Bitboards.file(PackedMove.to(packed));
     }
 
     public int getToRank() {
-        return toRank;
+        return Bitboards.rank(PackedMove.to(packed));
+    }
+
+    /**
+     * The packed form of this move.
+     */
+    public int toPacked() {
+        return packed;
     }
 
     /**
@@ -50,12 +65,12 @@ public class Move {
      * @return true: promotion, false: no promotion;
      */
     public boolean qualifiedPromotion(Color color) {
+        int toRank = getToRank();
         return (color == Color.WHITE && toRank == 8) || (color == Color.BLACK && toRank == 1);
     }
 
     @Override
     public String toString() {
-        final String files = "abcdefgh";
-        return "" + files.charAt(fromFile - 1) + fromRank + files.charAt(toFile - 1) + toRank;
+        return PackedMove.toString(packed);
     }
 }
@@ -0,0 +1,303 @@
+package com.github.bitfexl.javachess.game;
+
+import com.github.bitfexl.javachess.pieces.Piece;
+
+/**
+ * Pseudo-legal move generator writing packed moves (see PackedMove)
+ * into a caller supplied buffer. Uses the precomputed tables in
+ * Bitboards and does not allocate.
+ * Pseudo-legal: the own king may be left in check
+ * (castling still requires the king not to be in or pass through check).
+ */
+public final class MoveGenerator {
+    /**
+     * Upper bound of moves in any position, use as buffer size.
+     */
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * Upper bound of moves of a single piece.
+     */
+    public static final int MAX_PIECE_MOVES = 28;
+
+    private static final int[] PROMOTIONS = {Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT};
+
+    private MoveGenerator() { }
+
+    /**
+     * Generate all pseudo-legal moves of a player.
+     * @param board The board.
+     * @param color The player to generate the moves for.
+     * @param moves The buffer to write to (MAX_MOVES is always enough).
+     * @param offset The first index to write to.
+     * @return The index after the last written move.
+     */
+    public static int generate(Board board, Color color, int[] moves, int offset) {
+        for (long set = board.getPieces(color); set != 0; set &= set - 1) {
+            int square = Bitboards.first(set);
+            offset = generate(board, square, board.get(square).getType(), color, moves, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Generate the pseudo-legal moves of a single piece.
+     * The piece does not need to be on the board.
+     * @param board The board.
+     * @param square The square of the piece (0-63).
+     * @param type The piece type (see Piece.getType()).
+     * @param color The color of the piece.
+     * @param moves The buffer to write to (MAX_PIECE_MOVES is always enough).
+     * @param offset The first index to write to.
+     * @return The index after the last written move.
+     */
+    public static int generate(Board board, int square, int type, Color color, int[] moves, int offset) {
+        long occupied = board.getOccupied();
+        long enemies = board.getPieces(color.opponent());
+
+        if (type == Piece.PAWN) {
+            return generatePawn(square, color, occupied, enemies, board.getEnPassantSquare(), moves, offset);
+        }
+
+        long targets = attacks(type, square, color, occupied) & ~board.getPieces(color);
+        offset = write(square, targets, enemies, moves, offset);
+
+        if (type == Piece.KING && board.getCastlingRights() != CastlingRights.NONE) {
+            offset = generateCastles(board, square, color, moves, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Generate all legal moves of a player.
+     * Checkers and pinned pieces are computed once per position,
+     * only legal moves are written.
+     * @param board The board.
+     * @param color The player to generate the moves for.
+     * @param moves The buffer to write to (MAX_MOVES is always enough).
+     * @param offset The first index to write to.
+     * @return The index after the last written move.
+     */
+    public static int generateLegal(Board board, Color color, int[] moves, int offset) {
+        for (long set = board.getPieces(color); set != 0; set &= set - 1) {
+            offset = generateLegal(board, Bitboards.first(set), moves, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Generate the legal moves of the piece on a square.
+     * @param board The board.
+     * @param square The square of the piece (0-63).
+     * @param moves The buffer to write to (MAX_PIECE_MOVES is always enough).
+     * @param offset The first index to write to.
+     * @return The index after the last written move, offset if the square is empty.
+     */
+    public static int generateLegal(Board board, int square, int[] moves, int offset) {
+        Piece piece = board.get(square);
+        if (piece == null) {
+            return offset;
+        }
+
+        final Color color = piece.getColor();
+        final int end = generate(board, square, piece.getType(), color, moves, offset);
+
+        long kings = board.getPieces(Piece.KING, color);
+        if (kings == 0) {
+            return end; // nothing to protect
+        } else if (Bitboards.count(kings) > 1) {
+            return filterByMakeUndo(board, color, moves, offset, end);
+        }
+
+        final int king = Bitboards.first(kings);
+        final Color opponent = color.opponent();
+        final long checkers = board.getCheckers(color);
+        int write = offset;
+
+        if (square == king) {
+            // the king may not step onto an attacked square,
+            // including squares on a checking ray behind the king
+            long occupied = board.getOccupied() ^ Bitboards.bit(king);
+            for (int i=offset; i<end; i++) {
+                if (board.getAttackers(PackedMove.to(moves[i]), opponent, occupied) == 0) {
+                    moves[write++] = moves[i];
+                }
+            }
+            return write;
+        }
+
+        if (Bitboards.count(checkers) > 1) {
+            return offset; // double check, king moves only
+        }
+
+        // capture the checker or block the check
+        long targets = checkers == 0 ? ~0L : checkers | Bitboards.between(king, Bitboards.first(checkers));
+        if ((board.getPinned(color) & Bitboards.bit(square)) != 0) {
+            targets &= Bitboards.line(king, square);
+        }
+
+        for (int i=offset; i<end; i++) {
+            if (PackedMove.hasFlag(moves[i], PackedMove.EN_PASSANT)) {
+                // two pawns leave the rank, the captured pawn may be the checker: play it
+                if (isLegalByMakeUndo(board, color, moves[i])) {
+                    moves[write++] = moves[i];
+                }
+            } else if ((targets & Bitboards.bit(PackedMove.to(moves[i]))) != 0) {
+                moves[write++] = moves[i];
+            }
+        }
+        return write;
+    }
+
+    /**
+     * Checks if a player has at least one legal move.
+     * Stops at the first legal move found.
+     * @param board The board.
+     * @param color The player to check.
+     * @return true: legal move found, false: no legal moves;
+     */
+    public static boolean hasLegalMove(Board board, Color color) {
+        int[] moves = new int[MAX_PIECE_MOVES];
+
+        // king first, most likely to have moves when in check
+        for (long set = board.getPieces(Piece.KING, color); set != 0; set &= set - 1) {
+            if (generateLegal(board, Bitboards.first(set), moves, 0) > 0) {
+                return true;
+            }
+        }
+
+        for (long set = board.getPieces(color) & ~board.getPieces(Piece.KING, color); set != 0; set &= set - 1) {
+            if (generateLegal(board, Bitboards.first(set), moves, 0) > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Fallback for unusual positions: play every move
+     * and drop it if it leaves the own king in check.
+     */
+    private static int filterByMakeUndo(Board board, Color color, int[] moves, int start, int end) {
+        int write = start;
+        for (int i=start; i<end; i++) {
+            if (isLegalByMakeUndo(board, color, moves[i])) {
+                moves[write++] = moves[i];
+            }
+        }
+        return write;
+    }
+
+    private static boolean isLegalByMakeUndo(Board board, Color color, int move) {
+        board.move(move);
+        boolean legal = !board.isInCheck(color);
+        board.undoMove();
+        return legal;
+    }
+
+    /**
+     * Castling moves of a king (the king moves two squares, see Board.move()).
+     * The squares between king and rook must be empty, the king may not
+     * be in check or pass an attacked square. The target square is checked
+     * by the legal move generator like for every other king move.
+     */
+    private static int generateCastles(Board board, int square, Color color, int[] moves, int offset) {
+        int home = color == Color.WHITE ? Bitboards.square(5, 1) : Bitboards.square(5, 8);
+        if (square != home || (board.getPieces(Piece.KING, color) & Bitboards.bit(home)) == 0) {
+            return offset;
+        }
+
+        Color opponent = color.opponent();
+        long occupied = board.getOccupied();
+        long rooks = board.getPieces(Piece.ROOK, color);
+
+        if ((board.getCastlingRights() & CastlingRights.kingside(color)) != 0 && (rooks & Bitboards.bit(home + 3)) != 0
+                && (occupied & Bitboards.between(home, home + 3)) == 0
+                && board.getAttackers(home, opponent, occupied) == 0
+                && board.getAttackers(home + 1, opponent, occupied) == 0) {
+            moves[offset++] = PackedMove.of(home, home + 2, 0, PackedMove.CASTLE);
+        }
+        if ((board.getCastlingRights() & CastlingRights.queenside(color)) != 0 && (rooks & Bitboards.bit(home - 4)) != 0
+                && (occupied & Bitboards.between(home, home - 4)) == 0
+                && board.getAttackers(home, opponent, occupied) == 0
+                && board.getAttackers(home - 1, opponent, occupied) == 0) {
+            moves[offset++] = PackedMove.of(home, home - 2, 0, PackedMove.CASTLE);
+        }
+        return offset;
+    }
+
+    /**
+     * Squares attacked by a piece.
+     * @param type The piece type (see Piece.getType()).
+     * @param square The square of the piece.
+     * @param color The color of the piece (pawns only).
+     * @param occupied The occupied squares (sliding pieces only).
+     * @return The attacked squares, may include own pieces.
+     */
+    public static long attacks(int type, int square, Color color, long occupied) {
+        return switch (type) {
+            case Piece.PAWN -> Bitboards.pawnAttacks(square, color);
+            case Piece.KNIGHT -> Bitboards.knightAttacks(square);
+            case Piece.BISHOP -> Bitboards.bishopAttacks(square, occupied);
+            case Piece.ROOK -> Bitboards.rookAttacks(square, occupied);
+            case Piece.QUEEN -> Bitboards.queenAttacks(square, occupied);
+            case Piece.KING -> Bitboards.kingAttacks(square);
+            default -> throw new IllegalArgumentException("Unknown piece type " + type + ".");
+        };
+    }
+
+    private static int generatePawn(int square, Color color, long occupied, long enemies, int enPassant,
+                                    int[] moves, int offset) {
+        final boolean white = color == Color.WHITE;
+        final int forward = white ? 8 : -8;
+        final int rank = Bitboards.rank(square);
+        final boolean promotion = rank == (white ? 7 : 2);
+
+        if (rank == (white ? 8 : 1)) {
+            return offset; // pawn placed on the last rank, no moves
+        }
+
+        int to = square + forward;
+        if ((occupied & Bitboards.bit(to)) == 0) {
+            offset = writePawn(square, to, 0, promotion, moves, offset);
+
+            int doubleTo = to + forward;
+            if (rank == (white ? 2 : 7) && (occupied & Bitboards.bit(doubleTo)) == 0) {
+                moves[offset++] = PackedMove.of(square, doubleTo, 0, PackedMove.DOUBLE_PUSH);
+            }
+        }
+
+        for (long set = Bitboards.pawnAttacks(square, color) & enemies; set != 0; set &= set - 1) {
+            offset = writePawn(square, Bitboards.first(set), PackedMove.CAPTURE, promotion, moves, offset);
+        }
+
+        // the target square is behind a pawn of the opponent which just moved two squares
+        if (enPassant != Board.NO_SQUARE && Bitboards.rank(enPassant) == (white ? 6 : 3)
+                && (Bitboards.pawnAttacks(square, color) & Bitboards.bit(enPassant)) != 0) {
+            moves[offset++] = PackedMove.of(square, enPassant, 0, PackedMove.CAPTURE | PackedMove.EN_PASSANT);
+        }
+
+        return offset;
+    }
+
+    private static int writePawn(int from, int to, int flags, boolean promotion, int[] moves, int offset) {
+        if (promotion) {
+            for (int piece : PROMOTIONS) {
+                moves[offset++] = PackedMove.of(from, to, piece, flags);
+            }
+        } else {
+            moves[offset++] = PackedMove.of(from, to, 0, flags);
+        }
+        return offset;
+    }
+
+    private static int write(int from, long targets, long enemies, int[] moves, int offset) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Bitboards.first(targets);
+            int flags = (enemies & Bitboards.bit(to)) != 0 ? PackedMove.CAPTURE : 0;
+            moves[offset++] = PackedMove.of(from, to, 0, flags);
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.bitfexl.javachess.game;
+
+/**
+ * Moves packed into an int, used by the move generator
+ * and the board history (no allocation).
+ * Layout: bits 0-5 from square, bits 6-11 to square,
+ * bits 12-14 promotion piece type (0: none), bits 15+ flags.
+ * Square index see Bitboards.
+ */
+public final class PackedMove {
+    /**
+     * Never a valid move.
+     */
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLE = 1 << 18;
+
+    private PackedMove() { }
+
+    /**
+     * Pack a move without promotion or flags.
+     * @param from The from square (0-63).
+     * @param to The to square (0-63).
+     */
+    public static int of(int from, int to) {
+        return from | to << 6;
+    }
+
+    /**
+     * Pack a move.
+     * @param from The from square (0-63).
+     * @param to The to square (0-63).
+     * @param promotion The piece type to promote to (see Piece.getType()) or 0.
+     * @param flags The flags (CAPTURE, ...) or 0.
+     */
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | to << 6 | promotion << 12 | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * The piece type to promote to.
+     * @return The type (see Piece.getType()) or 0 for no promotion.
+     */
+    public static int promotion(int move) {
+        return (move >>> 12) & 0x7;
+    }
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != 0;
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * From, to and promotion, without flags.
+     * Two moves are equal if their base moves are equal.
+     */
+    public static int base(int move) {
+        return move & 0x7FFF;
+    }
+
+    /**
+     * The move in long algebraic notation (e.g. "e7e8q").
+     */
+    public static String toString(int move) {
+        String s = Bitboards.toString(from(move)) + Bitboards.toString(to(move));
+        if (isPromotion(move)) {
+            s += "pnbrqk".charAt(promotion(move));
+        }
+        return s;
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.bitfexl.javachess.game;
+
+import com.github.bitfexl.javachess.pieces.Piece;
+
+/**
+ * Notified by a board about every piece change,
+ * used to keep external state (e.g. NNUE accumulators) up to date.
+ */
+public interface PieceListener {
+    /**
+     * A piece has been removed from a square.
+     * @param piece The removed piece.
+     * @param square The square index (0-63).
+     */
+    void pieceRemoved(Piece piece, int square);
+
+    /**
+     * A piece has been placed on an empty square.
+     * @param piece The placed piece.
+     * @param square The square index (0-63).
+     */
+    void piecePlaced(Piece piece, int square);
+
+    /**
+     * The whole position has been replaced (e.g. Board.copyTo),
+     * incremental state has to be recalculated.
+     * @param board The board.
+     */
+    void positionReplaced(Board board);
+}
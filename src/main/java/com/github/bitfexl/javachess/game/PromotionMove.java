@@ -12,7 +12,7 @@ public class PromotionMove extends Move {
      * @throws IllegalArgumentException move does not qualify for promotion.
      */
     public PromotionMove(Move move, Piece piece) {
-        super(move.getFromFile(), move.getFromRank(), move.getToFile(), move.getToRank());
+        super(PackedMove.of(PackedMove.from(move.toPacked()), PackedMove.to(move.toPacked()), piece.getType(), 0));
 
         if (!qualifiedPromotion(piece.getColor())) {
             throw new IllegalArgumentException("No promotion move.");
@@ -21,6 +21,15 @@ public class PromotionMove extends Move {
         this.piece = piece;
     }
 
+    /**
+     * View of a packed promotion move.
+     * The color is derived from the promotion rank.
+     */
+    PromotionMove(int packed) {
+        super(packed);
+        this.piece = Piece.of(PackedMove.promotion(packed), getToRank() == 8 ? Color.WHITE : Color.BLACK);
+    }
+
     /**
      * The piece to promote to.
      */
@@ -0,0 +1,100 @@
+package com.github.bitfexl.javachess.game;
+
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys: a position key is the xor of one random
+ * number per (piece, square), one for black to move, one per
+ * castling rights set and one per en passant file.
+ * Keys are generated from a fixed seed, so position keys
+ * are stable across runs.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x6A617661L;
+
+    // [color.ordinal()][piece type][square]
+    private static final long[][][] PIECES = new long[2][Piece.TYPE_COUNT][64];
+
+    private static final long BLACK_TO_MOVE;
+
+    // [castling rights]
+    private static final long[] CASTLING = new long[16];
+
+    // [file index 0-7]
+    private static final long[] EN_PASSANT = new long[8];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[][] color : PIECES) {
+            for (long[] type : color) {
+                for (int square=0; square<64; square++) {
+                    type[square] = random.nextLong();
+                }
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        for (int i=1; i<CASTLING.length; i++) {
+            CASTLING[i] = random.nextLong();
+        }
+        for (int i=0; i<EN_PASSANT.length; i++) {
+            EN_PASSANT[i] = random.nextLong();
+        }
+    }
+
+    private Zobrist() { }
+
+    /**
+     * The key of a piece on a square.
+     * @param piece The piece (not null).
+     * @param square The square index (0-63).
+     */
+    public static long piece(Piece piece, int square) {
+        return PIECES[piece.getColor().ordinal()][piece.getType()][square];
+    }
+
+    /**
+     * The key xor-ed in when black is to move.
+     */
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    /**
+     * The key of a castling rights set (0 for no rights).
+     * @param rights The rights (see CastlingRights).
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * The key of an en passant target square.
+     * @param square The square index (0-63), only the file is used.
+     */
+    public static long enPassant(int square) {
+        return EN_PASSANT[square & 7];
+    }
+
+    /**
+     * Compute the key of a position from scratch.
+     * @param board The position.
+     * @return The position key.
+     */
+    public static long compute(Board board) {
+        long hash = 0;
+        for (long set = board.getOccupied(); set != 0; set &= set - 1) {
+            int square = Bitboards.first(set);
+            hash ^= piece(board.get(square), square);
+        }
+        if (board.getSideToMove() == Color.BLACK) {
+            hash ^= BLACK_TO_MOVE;
+        }
+        hash ^= castling(board.getCastlingRights());
+        if (board.getEnPassantSquare() != Board.NO_SQUARE) {
+            hash ^= enPassant(board.getEnPassantSquare());
+        }
+        return hash;
+    }
+}
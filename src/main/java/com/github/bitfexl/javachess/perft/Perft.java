@@ -0,0 +1,200 @@
+package com.github.bitfexl.javachess.perft;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import com.github.bitfexl.javachess.game.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree (perft)
+ * to verify and measure the move generator.
+ * Root moves are split across a fork join pool,
+ * each task searches on its own copy of the board.
+ */
+public class Perft {
+    /**
+     * Result of a perft run.
+     */
+    public static class Result {
+        private final long nodes;
+        private final long nanos;
+        private final List<Entry> divide;
+
+        private Result(long nodes, long nanos, List<Entry> divide) {
+            this.nodes = nodes;
+            this.nanos = nanos;
+            this.divide = divide;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Leaf nodes per second.
+         */
+        public long getNodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+        }
+
+        /**
+         * Nodes per root move, in move generation order.
+         */
+        public List<Entry> getDivide() {
+            return divide;
+        }
+    }
+
+    /**
+     * Nodes below a single root move.
+     */
+    public static class Entry {
+        private final int move;
+        private final long nodes;
+
+        private Entry(int move, long nodes) {
+            this.move = move;
+            this.nodes = nodes;
+        }
+
+        /**
+         * The root move, packed (see PackedMove).
+         */
+        public int getMove() {
+            return move;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        @Override
+        public String toString() {
+            return PackedMove.toString(move) + ": " + nodes;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Init a perft runner using the common pool.
+     */
+    public Perft() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Init a perft runner.
+     * @param pool The pool to split the root moves across.
+     */
+    public Perft(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Count the leaf nodes of the position, side to move see Board.
+     * @param board The position (not modified).
+     * @param depth The depth in plies.
+     * @return The node count, time and nodes per root move.
+     */
+    public Result perft(Board board, int depth) {
+        long start = System.nanoTime();
+
+        if (depth <= 0) {
+            return new Result(1, System.nanoTime() - start, List.of());
+        }
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, board.getSideToMove(), moves, 0);
+
+        List<RootTask> tasks = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            Board copy = new Board(true);
+            board.copyTo(copy);
+            RootTask task = new RootTask(copy, moves[i], depth - 1);
+            tasks.add(task);
+            pool.execute(task);
+        }
+
+        List<Entry> divide = new ArrayList<>(count);
+        long nodes = 0;
+        for (RootTask task : tasks) {
+            long n = task.join();
+            divide.add(new Entry(task.move, n));
+            nodes += n;
+        }
+
+        return new Result(nodes, System.nanoTime() - start, List.copyOf(divide));
+    }
+
+    /**
+     * Node counts per root move.
+     * @param board The position (not modified).
+     * @param depth The depth in plies.
+     * @return The entries in move generation order.
+     */
+    public List<Entry> divide(Board board, int depth) {
+        return perft(board, depth).getDivide();
+    }
+
+    /**
+     * Single threaded perft, modifies the board (restored on return).
+     * @param board The position.
+     * @param depth The depth in plies.
+     * @param buffers Move buffers, one per remaining ply.
+     * @return The leaf node count.
+     */
+    static long count(Board board, int depth, int[][] buffers) {
+        int[] moves = buffers[depth];
+        int count = MoveGenerator.generateLegal(board, board.getSideToMove(), moves, 0);
+
+        if (depth == 1) {
+            return count; // bulk counting
+        }
+
+        long nodes = 0;
+        for (int i=0; i<count; i++) {
+            board.move(moves[i]);
+            nodes += count(board, depth - 1, buffers);
+            board.undoMove();
+        }
+        return nodes;
+    }
+
+    private static class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final int move;
+        private final int depth;
+
+        /**
+         * @param board A copy of the root position, owned by the task.
+         * @param move The root move.
+         * @param depth The depth below the root move.
+         */
+        private RootTask(Board board, int move, int depth) {
+            this.board = board;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth == 0) {
+                return 1L;
+            }
+
+            board.move(move);
+            return count(board, depth, new int[depth + 1][MoveGenerator.MAX_MOVES]);
+        }
+    }
+}
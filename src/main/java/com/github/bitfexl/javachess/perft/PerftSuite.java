@@ -0,0 +1,178 @@
+package com.github.bitfexl.javachess.perft;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Fen;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import com.github.bitfexl.javachess.pgn.San;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Standard perft reference positions with expected node counts.
+ * Regression gate for move generator changes, also checks that
+ * fen round trips keep the position key (see checkFenKeys()).
+ */
+public class PerftSuite {
+    /**
+     * A reference position.
+     */
+    public static class Position {
+        private final String name;
+        private final String fen;
+        private final long[] expected;
+
+        /**
+         * @param name The name of the position.
+         * @param fen The position.
+         * @param expected The node count for depth 1, 2, ...
+         */
+        public Position(String name, String fen, long... expected) {
+            this.name = name;
+            this.fen = fen;
+            this.expected = expected;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getFen() {
+            return fen;
+        }
+
+        /**
+         * The maximum depth with a known node count.
+         */
+        public int getMaxDepth() {
+            return expected.length;
+        }
+
+        /**
+         * The expected node count.
+         * @param depth The depth (1 to getMaxDepth()).
+         */
+        public long getExpected(int depth) {
+            return expected[depth - 1];
+        }
+    }
+
+    public static final List<Position> POSITIONS = List.of(
+            new Position("initial", Fen.INITIAL,
+                    20, 400, 8_902, 197_281, 4_865_609, 119_060_324),
+            new Position("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48, 2_039, 97_862, 4_085_603, 193_690_690),
+            new Position("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2_812, 43_238, 674_624, 11_030_083),
+            new Position("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6, 264, 9_467, 422_333, 15_833_292),
+            new Position("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44, 1_486, 62_379, 2_103_487, 89_941_194),
+            new Position("position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46, 2_079, 89_890, 3_894_594, 164_075_551)
+    );
+
+    // plies from the reference positions checked by checkFenKeys()
+    private static final int FEN_KEY_DEPTH = 3;
+
+    private final Perft perft;
+
+    public PerftSuite(Perft perft) {
+        this.perft = perft;
+    }
+
+    /**
+     * Run all positions up to a depth.
+     * @param maxDepth The maximum depth to run.
+     * @param out The stream to report to.
+     * @return true: all node counts match, false: at least one mismatch;
+     */
+    public boolean run(int maxDepth, PrintStream out) {
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalNanos = 0;
+
+        Board board = new Board(true);
+        for (Position position : POSITIONS) {
+            Fen.load(board, position.getFen());
+
+            for (int depth=1; depth<=Math.min(maxDepth, position.getMaxDepth()); depth++) {
+                Perft.Result result = perft.perft(board, depth);
+                boolean ok = result.getNodes() == position.getExpected(depth);
+                passed &= ok;
+                totalNodes += result.getNodes();
+                totalNanos += result.getNanos();
+
+                out.printf("%-12s depth %d: %,15d %s (expected %,d, %,d nps)%n",
+                        position.getName(), depth, result.getNodes(), ok ? "ok  " : "FAIL",
+                        position.getExpected(depth), result.getNodesPerSecond());
+            }
+        }
+
+        long fenMismatches = checkFenKeys(out);
+        passed &= fenMismatches == 0;
+        out.printf("fen keys: %,d mismatches%n", fenMismatches);
+
+        out.printf("%s: %,d nodes, %,d nps%n", passed ? "passed" : "FAILED",
+                totalNodes, totalNanos == 0 ? 0 : totalNodes * 1_000_000_000L / totalNanos);
+        return passed;
+    }
+
+    /**
+     * Check that a position loaded from fen has the same key as the same
+     * position reached by moves (e.g. en passant squares that can not be
+     * captured, castling rights without king or rook), for all positions a few plies from the reference positions.
+     * @param out The stream to report mismatches to.
+     * @return The number of mismatches.
+     */
+    public long checkFenKeys(PrintStream out) {
+        long mismatches = 0;
+
+        // 1. e4 c5: the fen names c6, black's pawn can not be captured
+        Board board = new Board();
+        board.move(San.parse(board, "e4"));
+        board.move(San.parse(board, "c5"));
+        Board loaded = new Board(true);
+        Fen.load(loaded, "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 2");
+        if (loaded.hash() != board.hash()) {
+            out.println("fen key mismatch after 1. e4 c5");
+            mismatches++;
+        }
+
+        // castling rights without the pieces: only white's kingside right is possible
+        Fen.load(board, "4k3/8/8/8/8/8/8/4K2R w K - 0 1");
+        Fen.load(loaded, "4k3/8/8/8/8/8/8/4K2R w KQkq - 0 1");
+        if (loaded.hash() != board.hash()) {
+            out.println("fen key mismatch with castling rights KQkq and one rook");
+            mismatches++;
+        }
+
+        for (Position position : POSITIONS) {
+            Fen.load(board, position.getFen());
+            mismatches += checkFenKeys(board, loaded, FEN_KEY_DEPTH, out);
+        }
+        return mismatches;
+    }
+
+    private static long checkFenKeys(Board board, Board loaded, int depth, PrintStream out) {
+        long mismatches = 0;
+        String fen = Fen.toString(board);
+        Fen.load(loaded, fen);
+        if (loaded.hash() != board.hash()) {
+            out.println("fen key mismatch: " + fen);
+            mismatches++;
+        }
+        if (depth == 0) {
+            return mismatches;
+        }
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, board.getSideToMove(), moves, 0);
+        for (int i=0; i<count; i++) {
+            board.move(moves[i]);
+            mismatches += checkFenKeys(board, loaded, depth - 1, out);
+            board.undoMove();
+        }
+        return mismatches;
+    }
+}
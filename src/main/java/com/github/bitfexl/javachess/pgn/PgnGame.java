@@ -0,0 +1,106 @@
+package com.github.bitfexl.javachess.pgn;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Fen;
+import com.github.bitfexl.javachess.game.Move;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A game: tag pairs, the moves of the main line and the result.
+ */
+public class PgnGame {
+    /**
+     * Result of an unfinished or unknown game.
+     */
+    public static final String UNKNOWN_RESULT = "*";
+
+    private final Map<String, String> tags;
+
+    private final int[] moves;
+
+    private final String result;
+
+    /**
+     * Init a game.
+     * @param tags The tag pairs in order (copied).
+     * @param moves The packed moves of the main line (see PackedMove), copied.
+     * @param result The result ("1-0", "0-1", "1/2-1/2" or "*").
+     */
+    public PgnGame(Map<String, String> tags, int[] moves, String result) {
+        this.tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        this.moves = moves.clone();
+        this.result = result;
+    }
+
+    /**
+     * The tag pairs in file order.
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Get the value of a tag.
+     * @param name The tag name, e.g. "White".
+     * @return The value or null.
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * The moves of the main line, like Board.getMoves().
+     */
+    public Move[] getMoves() {
+        Move[] array = new Move[moves.length];
+        for (int i=0; i<moves.length; i++) {
+            array[i] = Move.of(moves[i]);
+        }
+        return array;
+    }
+
+    /**
+     * The moves of the main line, packed (see PackedMove).
+     */
+    public int[] getPackedMoves() {
+        return moves.clone();
+    }
+
+    /**
+     * Number of plies of the main line.
+     */
+    public int getPlies() {
+        return moves.length;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Set up the starting position, the FEN tag or the initial position.
+     * @param board The board to set up.
+     */
+    public void loadStart(Board board) {
+        String fen = tags.get("FEN");
+        if (fen != null) {
+            Fen.load(board, fen);
+        } else {
+            board.reset();
+        }
+    }
+
+    /**
+     * Set up the final position.
+     * @param board The board to set up, with the moves as history.
+     */
+    public void loadEnd(Board board) {
+        loadStart(board);
+        for (int move : moves) {
+            board.move(move);
+        }
+    }
+}
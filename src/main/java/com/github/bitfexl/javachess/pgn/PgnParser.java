@@ -0,0 +1,181 @@
+package com.github.bitfexl.javachess.pgn;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Fen;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses the text of a single game: tag pairs and the main line,
+ * comments, variations, NAGs and move numbers are skipped.
+ * Reuses its board and buffers, not thread safe.
+ */
+public class PgnParser {
+    private final Board board = new Board(true);
+
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+
+    private int[] moves = new int[256];
+
+    /**
+     * Parse a game.
+     * @param text The text of one game.
+     * @return The game.
+     * @throws IllegalArgumentException Malformed tags or an illegal move.
+     */
+    public PgnGame parse(CharSequence text) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        int length = text.length();
+        int i = skipWhitespace(text, 0);
+
+        // tag pairs: [Name "value"]
+        while (i < length && text.charAt(i) == '[') {
+            int nameStart = ++i;
+            while (i < length && !Character.isWhitespace(text.charAt(i)) && text.charAt(i) != ']') {
+                i++;
+            }
+            String name = text.subSequence(nameStart, i).toString();
+
+            i = skipWhitespace(text, i);
+            StringBuilder value = new StringBuilder();
+            if (i < length && text.charAt(i) == '"') {
+                for (i++; i<length && text.charAt(i) != '"'; i++) {
+                    if (text.charAt(i) == '\\' && i + 1 < length) {
+                        i++;
+                    }
+                    value.append(text.charAt(i));
+                }
+                i++;
+            }
+            while (i < length && text.charAt(i) != ']') {
+                i++;
+            }
+            if (i == length) {
+                throw new IllegalArgumentException("Unterminated tag '" + name + "'.");
+            }
+            tags.put(name, value.toString());
+            i = skipWhitespace(text, i + 1);
+        }
+
+        String fen = tags.get("FEN");
+        if (fen != null) {
+            Fen.load(board, fen);
+        } else {
+            board.reset();
+        }
+
+        // movetext
+        int count = 0;
+        String result = tags.getOrDefault("Result", PgnGame.UNKNOWN_RESULT);
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == ')') {
+                i++;
+            } else if (c == '{') {
+                i = skipPast(text, i, '}');
+            } else if (c == ';' || (c == '%' && (i == 0 || text.charAt(i - 1) == '\n'))) {
+                i = skipPast(text, i, '\n');
+            } else if (c == '(') {
+                i = skipVariation(text, i);
+            } else if (c == '$') {
+                i++;
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+            } else {
+                int end = i;
+                while (end < length && !isDelimiter(text.charAt(end))) {
+                    end++;
+                }
+
+                // move number prefix, e.g. "12." or "12..."
+                int token = i;
+                while (token < end && Character.isDigit(text.charAt(token))) {
+                    token++;
+                }
+                if (token < end && text.charAt(token) == '.') {
+                    while (token < end && text.charAt(token) == '.') {
+                        token++;
+                    }
+                } else {
+                    token = i;
+                }
+
+                if (token < end) {
+                    String tokenResult = result(text, token, end);
+                    if (tokenResult != null) {
+                        result = tokenResult;
+                    } else {
+                        int move = San.parse(board, text, token, end, moveBuffer);
+                        board.move(move);
+                        if (count == moves.length) {
+                            moves = Arrays.copyOf(moves, count * 2);
+                        }
+                        moves[count++] = move;
+                    }
+                }
+                i = end;
+            }
+        }
+
+        return new PgnGame(tags, Arrays.copyOf(moves, count), result);
+    }
+
+    private static String result(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length == 1 && text.charAt(start) == '*') {
+            return "*";
+        }
+        if (length == 3 && text.charAt(start + 1) == '-') {
+            if (text.charAt(start) == '1' && text.charAt(start + 2) == '0') {
+                return "1-0";
+            }
+            if (text.charAt(start) == '0' && text.charAt(start + 2) == '1') {
+                return "0-1";
+            }
+        }
+        if (length == 7 && "1/2-1/2".contentEquals(text.subSequence(start, end))) {
+            return "1/2-1/2";
+        }
+        return null;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return Character.isWhitespace(c) || c == '{' || c == '(' || c == ')' || c == ';' || c == '$';
+    }
+
+    private static int skipWhitespace(CharSequence text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipPast(CharSequence text, int i, char end) {
+        while (i < text.length() && text.charAt(i) != end) {
+            i++;
+        }
+        return i + 1;
+    }
+
+    private static int skipVariation(CharSequence text, int i) {
+        int depth = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                i = skipPast(text, i, '}');
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+}
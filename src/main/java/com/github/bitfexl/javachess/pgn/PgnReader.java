@@ -0,0 +1,266 @@
+package com.github.bitfexl.javachess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Streams games from a PGN file through a fixed size buffer,
+ * the file is never held in memory as a whole.
+ * Games are split at tag sections following movetext,
+ * so splitting is cheap and parsing can run in parallel.
+ */
+public class PgnReader implements Closeable {
+    /**
+     * Statistics of a read.
+     */
+    public static class Stats {
+        private final long games;
+        private final long plies;
+        private final long errors;
+        private final long nanos;
+
+        private Stats(long games, long plies, long errors, long nanos) {
+            this.games = games;
+            this.plies = plies;
+            this.errors = errors;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Successfully parsed games.
+         */
+        public long getGames() {
+            return games;
+        }
+
+        public long getPlies() {
+            return plies;
+        }
+
+        /**
+         * Games skipped because of malformed tags or illegal moves.
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getGamesPerSecond() {
+            return nanos == 0 ? 0 : games * 1_000_000_000L / nanos;
+        }
+
+        public long getPliesPerSecond() {
+            return nanos == 0 ? 0 : plies * 1_000_000_000L / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d games, %,d plies, %,d errors in %d ms: %,d games/s, %,d plies/s",
+                    games, plies, errors, nanos / 1_000_000, getGamesPerSecond(), getPliesPerSecond());
+        }
+    }
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // games per task of a parallel read
+    private static final int BATCH_SIZE = 64;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+    private final PgnParser parser = new PgnParser();
+
+    // bytes of the current game
+    private byte[] game = new byte[8192];
+    private int gameLength;
+
+    // splitter state, kept across chunks
+    private boolean lineStart = true;
+    private boolean tagLine;
+    private boolean movetext;
+    private int commentDepth;
+
+    private String pending;
+
+    private boolean eof;
+
+    /**
+     * Open a file.
+     * @param file The PGN file.
+     * @throws IOException The file could not be opened.
+     */
+    public PgnReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        chunk.limit(0);
+    }
+
+    /**
+     * Read and parse the next game.
+     * @return The game or null at the end of the file.
+     * @throws IOException The file could not be read.
+     * @throws IllegalArgumentException The game is malformed.
+     */
+    public PgnGame next() throws IOException {
+        String text = nextText();
+        return text == null ? null : parser.parse(text);
+    }
+
+    /**
+     * Read the text of the next game without parsing it.
+     * @return The text or null at the end of the file.
+     * @throws IOException The file could not be read.
+     */
+    public String nextText() throws IOException {
+        while (pending == null) {
+            if (!chunk.hasRemaining()) {
+                if (eof) {
+                    String last = emit();
+                    return last.isBlank() ? null : last;
+                }
+                chunk.clear();
+                eof = channel.read(chunk) < 0;
+                chunk.flip();
+                continue;
+            }
+            split();
+        }
+
+        String text = pending;
+        pending = null;
+        return text;
+    }
+
+    /**
+     * Append bytes of the chunk to the current game
+     * until a game is complete or the chunk is empty.
+     */
+    private void split() {
+        while (chunk.hasRemaining() && pending == null) {
+            byte b = chunk.get();
+
+            if (lineStart && b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                lineStart = false;
+                tagLine = b == '[' && commentDepth == 0;
+                if (tagLine && movetext) {
+                    movetext = false;
+                    String text = emit();
+                    if (!text.isBlank()) {
+                        pending = text;
+                    }
+                } else if (!tagLine && b != '%') {
+                    movetext = true;
+                }
+            }
+
+            if (gameLength == game.length) {
+                game = Arrays.copyOf(game, gameLength * 2);
+            }
+            game[gameLength++] = b;
+
+            if (b == '\n') {
+                lineStart = true;
+                tagLine = false;
+            } else if (!tagLine && b == '{') {
+                commentDepth++;
+            } else if (!tagLine && b == '}' && commentDepth > 0) {
+                commentDepth--;
+            }
+        }
+    }
+
+    private String emit() {
+        String text = new String(game, 0, gameLength, StandardCharsets.UTF_8);
+        gameLength = 0;
+        return text;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Read a whole file, parsing games in parallel. Reading and splitting
+     * runs on the calling thread, at most a few batches of games are
+     * held in memory at a time.
+     * @param file The PGN file.
+     * @param threads The number of parser threads.
+     * @param consumer Called for every game, on the parser threads (in no particular order).
+     * @return The statistics, malformed games are counted and skipped.
+     * @throws IOException The file could not be read.
+     */
+    public static Stats read(Path file, int threads, Consumer<PgnGame> consumer) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "pgn-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ThreadLocal<PgnParser> parsers = ThreadLocal.withInitial(PgnParser::new);
+        Semaphore inFlight = new Semaphore(threads * 4);
+        AtomicLong games = new AtomicLong();
+        AtomicLong plies = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+
+        long start = System.nanoTime();
+        try (PgnReader reader = new PgnReader(file)) {
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            for (String text = reader.nextText(); ; text = reader.nextText()) {
+                if (text != null) {
+                    batch.add(text);
+                }
+                if (batch.size() == BATCH_SIZE || (text == null && !batch.isEmpty())) {
+                    List<String> texts = batch;
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    inFlight.acquireUninterruptibly();
+                    executor.execute(() -> {
+                        try {
+                            PgnParser parser = parsers.get();
+                            for (String t : texts) {
+                                try {
+                                    PgnGame game = parser.parse(t);
+                                    games.incrementAndGet();
+                                    plies.addAndGet(game.getPlies());
+                                    consumer.accept(game);
+                                } catch (IllegalArgumentException ex) {
+                                    errors.incrementAndGet();
+                                }
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                if (text == null) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return new Stats(games.get(), plies.get(), errors.get(), System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.bitfexl.javachess.pgn;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes games in PGN export format: tag pairs,
+ * SAN movetext wrapped at 80 columns and the result.
+ */
+public class PgnWriter implements Closeable {
+    private static final int LINE_LENGTH = 80;
+
+    private final Writer writer;
+
+    private final Board board = new Board(true);
+
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+
+    private final StringBuilder token = new StringBuilder(16);
+
+    /**
+     * Init a writer.
+     * @param writer The target, closed by close().
+     */
+    public PgnWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write a game, followed by an empty line.
+     * @param game The game.
+     * @throws IOException The game could not be written.
+     */
+    public void write(PgnGame game) throws IOException {
+        boolean hasResult = false;
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            String value = tag.getKey().equals("Result") ? game.getResult() : tag.getValue();
+            hasResult |= tag.getKey().equals("Result");
+            writer.write("[" + tag.getKey() + " \"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]\n");
+        }
+        if (!hasResult) {
+            writer.write("[Result \"" + game.getResult() + "\"]\n");
+        }
+        writer.write('\n');
+
+        game.loadStart(board);
+        line.setLength(0);
+        int[] moves = game.getPackedMoves();
+        for (int i=0; i<moves.length; i++) {
+            token.setLength(0);
+            if (board.getSideToMove() == Color.WHITE) {
+                token.append(board.getFullmoveNumber()).append(". ");
+            } else if (i == 0) {
+                token.append(board.getFullmoveNumber()).append("... ");
+            }
+            San.append(board, moves[i], token, moveBuffer);
+            appendToken();
+            board.move(moves[i]);
+        }
+        token.setLength(0);
+        token.append(game.getResult());
+        appendToken();
+
+        writer.write(line.toString());
+        writer.write("\n\n");
+    }
+
+    private void appendToken() throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() > LINE_LENGTH) {
+            writer.write(line.toString());
+            writer.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
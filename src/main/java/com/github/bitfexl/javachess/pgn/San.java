@@ -0,0 +1,212 @@
+package com.github.bitfexl.javachess.pgn;
+
+import com.github.bitfexl.javachess.game.*;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+/**
+ * Standard algebraic notation (e.g. "Nbd7", "exd5", "e8=Q+", "O-O"),
+ * parsed against and written from the legal moves of a board.
+ */
+public final class San {
+    private static final String PIECES = "PNBRQK";
+
+    private San() { }
+
+    /**
+     * Find the legal move of a SAN token, check and annotation
+     * suffixes (+#!?) are ignored.
+     * @param board The position, side to move is the moving player.
+     * @param san The characters.
+     * @param start The index of the first character (inclusive).
+     * @param end The index of the last character (exclusive).
+     * @param buffer Move buffer, at least MoveGenerator.MAX_MOVES long.
+     * @return The packed move (see PackedMove).
+     * @throws IllegalArgumentException Malformed, illegal or ambiguous move.
+     */
+    public static int parse(Board board, CharSequence san, int start, int end, int[] buffer) {
+        while (end > start && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end - start < 2) {
+            throw invalid(san, start, end);
+        }
+
+        Color us = board.getSideToMove();
+        int count = MoveGenerator.generateLegal(board, us, buffer, 0);
+
+        char first = san.charAt(start);
+        if (first == 'O' || first == '0') {
+            boolean queenside = end - start >= 5;
+            for (int i=0; i<count; i++) {
+                int move = buffer[i];
+                int from = PackedMove.from(move);
+                int to = PackedMove.to(move);
+                if (board.get(from).getType() == Piece.KING
+                        && to - from == (queenside ? -2 : 2)) {
+                    return move;
+                }
+            }
+            throw invalid(san, start, end);
+        }
+
+        int type = Piece.PAWN;
+        int i = start;
+        if (first >= 'A' && first <= 'Z') {
+            type = PIECES.indexOf(first);
+            if (type < 0) {
+                throw invalid(san, start, end);
+            }
+            i++;
+        }
+
+        // promotion suffix "=Q" or "Q"
+        int promotion = 0;
+        char last = san.charAt(end - 1);
+        if (type == Piece.PAWN && last >= 'A' && last <= 'Z') {
+            promotion = PIECES.indexOf(last);
+            if (promotion <= Piece.PAWN || promotion == Piece.KING) {
+                throw invalid(san, start, end);
+            }
+            end--;
+            if (san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+
+        if (end - i < 2) {
+            throw invalid(san, start, end);
+        }
+        int toFile = san.charAt(end - 2) - 'a' + 1;
+        int toRank = san.charAt(end - 1) - '0';
+        if (!Board.checkInBounds(toFile) || !Board.checkInBounds(toRank)) {
+            throw invalid(san, start, end);
+        }
+        int to = Bitboards.square(toFile, toRank);
+
+        // disambiguation between piece letter and target, 'x' ignored
+        int fromFile = 0;
+        int fromRank = 0;
+        for (; i<end-2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a' + 1;
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '0';
+            } else if (c != 'x' && c != '-' && c != ':') {
+                throw invalid(san, start, end);
+            }
+        }
+
+        int found = PackedMove.NONE;
+        for (int m=0; m<count; m++) {
+            int move = buffer[m];
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) != to || board.get(from).getType() != type
+                    || PackedMove.promotion(move) != promotion
+                    || (fromFile != 0 && Bitboards.file(from) != fromFile)
+                    || (fromRank != 0 && Bitboards.rank(from) != fromRank)) {
+                continue;
+            }
+            if (found != PackedMove.NONE) {
+                throw new IllegalArgumentException("Ambiguous move '" + san.subSequence(start, end) + "'.");
+            }
+            found = move;
+        }
+
+        if (found == PackedMove.NONE) {
+            throw invalid(san, start, end);
+        }
+        return found;
+    }
+
+    /**
+     * Find the legal move of a SAN token.
+     * @param board The position, side to move is the moving player.
+     * @param san The move.
+     * @return The packed move (see PackedMove).
+     * @throws IllegalArgumentException Malformed, illegal or ambiguous move.
+     */
+    public static int parse(Board board, String san) {
+        return parse(board, san, 0, san.length(), new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Write a legal move in SAN, with check and mate suffix.
+     * @param board The position before the move (played and undone).
+     * @param move The packed move (see PackedMove).
+     * @param builder The builder to append to.
+     * @param buffer Move buffer, at least MoveGenerator.MAX_MOVES long.
+     */
+    public static void append(Board board, int move, StringBuilder builder, int[] buffer) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        Piece piece = board.get(from);
+        int type = piece.getType();
+
+        if (type == Piece.KING && Math.abs(to - from) == 2) {
+            builder.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            boolean capture = board.get(to) != null
+                    || (type == Piece.PAWN && Bitboards.file(from) != Bitboards.file(to));
+
+            if (type == Piece.PAWN) {
+                if (capture) {
+                    builder.append((char) ('a' + Bitboards.file(from) - 1));
+                }
+            } else {
+                builder.append(PIECES.charAt(type));
+
+                // disambiguate by file, rank or both
+                boolean ambiguous = false;
+                boolean sameFile = false;
+                boolean sameRank = false;
+                int count = MoveGenerator.generateLegal(board, piece.getColor(), buffer, 0);
+                for (int i=0; i<count; i++) {
+                    int other = PackedMove.from(buffer[i]);
+                    if (other != from && PackedMove.to(buffer[i]) == to && board.get(other).getType() == type) {
+                        ambiguous = true;
+                        sameFile |= Bitboards.file(other) == Bitboards.file(from);
+                        sameRank |= Bitboards.rank(other) == Bitboards.rank(from);
+                    }
+                }
+                if (ambiguous && (!sameFile || sameRank)) {
+                    builder.append((char) ('a' + Bitboards.file(from) - 1));
+                }
+                if (ambiguous && sameFile) {
+                    builder.append(Bitboards.rank(from));
+                }
+            }
+
+            if (capture) {
+                builder.append('x');
+            }
+            builder.append(Bitboards.toString(to));
+            if (PackedMove.isPromotion(move)) {
+                builder.append('=').append(PIECES.charAt(PackedMove.promotion(move)));
+            }
+        }
+
+        board.move(move);
+        Color opponent = piece.getColor().opponent();
+        if (board.isInCheck(opponent)) {
+            builder.append(MoveGenerator.hasLegalMove(board, opponent) ? '+' : '#');
+        }
+        board.undoMove();
+    }
+
+    /**
+     * Write a legal move in SAN.
+     * @param board The position before the move (played and undone).
+     * @param move The packed move (see PackedMove).
+     * @return The move, e.g. "Nf3".
+     */
+    public static String toString(Board board, int move) {
+        StringBuilder builder = new StringBuilder(8);
+        append(board, move, builder, new int[MoveGenerator.MAX_MOVES]);
+        return builder.toString();
+    }
+
+    private static IllegalArgumentException invalid(CharSequence san, int start, int end) {
+        return new IllegalArgumentException("Invalid move '" + san.subSequence(start, end) + "'.");
+    }
+}
@@ -24,6 +24,11 @@ public class Bishop extends Piece {
         super(color);
     }
 
+    @Override
+    public int getType() {
+        return BISHOP;
+    }
+
     @Override
     protected List<RelativeCoordinates> getPossibleMoves() {
         return MOVES;
@@ -26,9 +26,13 @@ public class King extends Piece {
         super(color);
     }
 
+    @Override
+    public int getType() {
+        return KING;
+    }
+
     @Override
     protected List<RelativeCoordinates> getPossibleMoves() {
         return MOVES;
     }
-    // todo: castle
 }
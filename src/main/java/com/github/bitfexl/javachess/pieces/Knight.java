@@ -1,6 +1,7 @@
 package com.github.bitfexl.javachess.pieces;
 
-import com.github.bitfexl.javachess.game.*;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.RelativeCoordinates;
 
 import java.util.List;
 
@@ -21,11 +22,8 @@ public class Knight extends Piece {
     }
 
     @Override
-    public List<Move> getValidMoves(Board board, Coordinates coordinates) {
-        List<Move> moves = getMoves(getPossibleMoves(), coordinates);
-        // no line of sight checking
-        moves = checkOwnColor(moves, board);
-        return moves;
+    public int getType() {
+        return KNIGHT;
     }
 
     @Override
@@ -9,6 +9,45 @@ import java.util.List;
  * A chess piece. Should be immutable/stateless.
  */
 public abstract class Piece {
+    /*
+     * Piece type indices, used to address the
+     * bitboards of a board (see getType()).
+     */
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    /**
+     * Number of distinct piece types.
+     */
+    public static final int TYPE_COUNT = 6;
+
+    /**
+     * Get a shared piece instance (pieces are stateless).
+     * @param type The piece type (PAWN to KING).
+     * @param color The color of the piece.
+     * @return The piece.
+     */
+    public static Piece of(int type, Color color) {
+        return SharedPieces.PIECES[color.ordinal()][type];
+    }
+
+    private static class SharedPieces {
+        private static final Piece[][] PIECES = new Piece[2][];
+
+        static {
+            for (Color color : Color.values()) {
+                PIECES[color.ordinal()] = new Piece[] {
+                        new Pawn(color), new Knight(color), new Bishop(color),
+                        new Rook(color), new Queen(color), new King(color)
+                };
+            }
+        }
+    }
+
     private final Color color;
 
     public Piece(Color color) {
@@ -28,30 +67,59 @@ public abstract class Piece {
         return (color.toString() + "_" + getClass().getSimpleName()).toLowerCase();
     }
 
+    /**
+     * The piece type index (PAWN to KING).
+     * @return The type of the piece.
+     */
+    public abstract int getType();
+
     /**
      * Get the possible moves for a board.
-     * Features a default implementation for Pieces
-     * which use getPossibleMoves().
+     * Features a default implementation using the
+     * MoveGenerator for the piece type.
      * Can be overridden if more control is needed.
      * Check needs to be checked using getTrueValidMoves().
      * @param board The board to get the moves for.
      * @param coordinates The coordinates of the piece.
      */
     public List<Move> getValidMoves(Board board, Coordinates coordinates) {
-        List<Move> moves = getMoves(getPossibleMoves(), coordinates);
-        moves = checkLineOfSight(moves, board);
-        moves = checkOwnColor(moves, board);
-        return moves;
+        int[] moves = new int[MoveGenerator.MAX_PIECE_MOVES];
+        int count = MoveGenerator.generate(board, coordinates.getSquare(), getType(), color, moves, 0);
+        return toMoves(moves, count);
+    }
+
+    /**
+     * Convert packed moves to Move views.
+     * Promotions are collapsed into a single move per target
+     * square (the piece to promote to is chosen separately).
+     * @param moves The packed moves.
+     * @param count The number of moves to convert.
+     * @return The moves.
+     */
+    protected List<Move> toMoves(int[] moves, int count) {
+        List<Move> list = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            int move = moves[i];
+            if (PackedMove.isPromotion(move)) {
+                if (PackedMove.promotion(move) != QUEEN) {
+                    continue;
+                }
+                move = PackedMove.of(PackedMove.from(move), PackedMove.to(move));
+            }
+            list.add(Move.of(move));
+        }
+        return list;
     }
 
     /**
      * Same as getValidMoves() but also checks checks.
-     * Uses getValidMoves() internally.
+     * Features a default implementation using the legal
+     * MoveGenerator for the piece on the board at the coordinates.
      */
     public List<Move> getTrueValidMoves(Board board, Coordinates coordinates) {
-        List<Move> moves = getValidMoves(board, coordinates);
-        moves = checkCheck(moves, board);
-        return moves;
+        int[] moves = new int[MoveGenerator.MAX_PIECE_MOVES];
+        int count = MoveGenerator.generateLegal(board, coordinates.getSquare(), moves, 0);
+        return toMoves(moves, count);
     }
 
     /**
@@ -64,11 +132,11 @@ public abstract class Piece {
         List<Move> moves = new ArrayList<>();
 
         for (RelativeCoordinates c : possibleMoves) {
-            try {
-                Move move = c.toMove(coordinates);
-                moves.add(move);
-            } catch (IllegalArgumentException ex) {
-                // move out of bounds of board, do not add
+            int file = coordinates.getFile() + c.xDelta();
+            int rank = coordinates.getRank() + c.yDelta();
+            // move out of bounds of board, do not add
+            if (Board.checkInBounds(file) && Board.checkInBounds(rank)) {
+                moves.add(c.toMove(coordinates));
             }
         }
 
@@ -124,7 +192,7 @@ public abstract class Piece {
     protected List<Move> checkCheck(List<Move> moves, Board board) {
         List<Move> passedMoves = new ArrayList<>();
 
-        Board copy = new Board();
+        Board copy = new Board(true);
         board.copyTo(copy);
 
         for (Move move : moves) {
@@ -142,8 +210,8 @@ public abstract class Piece {
      * A list of possible moves for the piece.
      * Only use if moves are equal for black and white
      * and no other rules apply.
-     * Override getValidMoves if more control is needed
-     * (this method remains unused in that case).
+     * Not used by the default getValidMoves (MoveGenerator),
+     * input for getMoves() in custom implementations.
      * @return A list of relative moves (in all directions).
      */
     protected abstract List<RelativeCoordinates> getPossibleMoves();
@@ -20,6 +20,11 @@ public class Queen extends Piece {
         super(color);
     }
 
+    @Override
+    public int getType() {
+        return QUEEN;
+    }
+
     @Override
     protected List<RelativeCoordinates> getPossibleMoves() {
         return MOVES;
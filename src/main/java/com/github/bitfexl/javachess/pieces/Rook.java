@@ -24,6 +24,11 @@ public class Rook extends Piece {
         super(color);
     }
 
+    @Override
+    public int getType() {
+        return ROOK;
+    }
+
     @Override
     protected List<RelativeCoordinates> getPossibleMoves() {
         return MOVES;
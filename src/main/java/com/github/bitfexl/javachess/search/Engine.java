@@ -0,0 +1,274 @@
+package com.github.bitfexl.javachess.search;
+
+import com.github.bitfexl.javachess.db.OpeningBook;
+import com.github.bitfexl.javachess.eval.Evaluator;
+import com.github.bitfexl.javachess.eval.NnueEvaluator;
+import com.github.bitfexl.javachess.eval.NnueNetwork;
+import com.github.bitfexl.javachess.eval.PstEvaluator;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.PackedMove;
+import com.github.bitfexl.javachess.tablebase.Tablebases;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs searches on a background thread,
+ * callers (e.g. the Swing EDT) never block.
+ */
+public class Engine {
+    public static final int DEFAULT_HASH_MB = 64;
+
+    private final TranspositionTable table;
+
+    private final LazySmp search;
+
+    private final Random random = new Random();
+
+    private volatile OpeningBook book;
+
+    private Tablebases tablebases;
+
+    private volatile Consumer<SearchResult> listener;
+
+    // incremented by every search() and stop(), a search runs while it is current
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "engine");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Engine() {
+        this(DEFAULT_HASH_MB, defaultThreads(), defaultEvaluators());
+        setBook(defaultBook());
+        setTablebases(defaultTablebases());
+    }
+
+    /**
+     * Init an engine with the piece-square evaluation.
+     * @param hashMb The transposition table size in MB.
+     * @param threads The number of search threads (Lazy SMP).
+     */
+    public Engine(int hashMb, int threads) {
+        this(hashMb, threads, PstEvaluator::new);
+    }
+
+    /**
+     * Init an engine.
+     * @param hashMb The transposition table size in MB.
+     * @param threads The number of search threads (Lazy SMP).
+     * @param evaluators Creates the static evaluation of each thread.
+     */
+    public Engine(int hashMb, int threads, Supplier<Evaluator> evaluators) {
+        this.table = new TranspositionTable(hashMb);
+        this.search = new LazySmp(table, threads, evaluators);
+    }
+
+    /**
+     * The default evaluation, a network loaded from the file in the
+     * system property "javachess.nnue" or the piece-square evaluation.
+     * @throws UncheckedIOException The network file could not be read.
+     */
+    public static Supplier<Evaluator> defaultEvaluators() {
+        String file = System.getProperty("javachess.nnue");
+        if (file == null) {
+            return PstEvaluator::new;
+        }
+
+        try {
+            NnueNetwork network = NnueNetwork.load(Path.of(file));
+            return () -> new NnueEvaluator(network);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * The default opening book, the file in the
+     * system property "javachess.book" or none.
+     * @return The book or null.
+     * @throws UncheckedIOException The book file could not be read.
+     */
+    public static OpeningBook defaultBook() {
+        String file = System.getProperty("javachess.book");
+        if (file == null) {
+            return null;
+        }
+
+        try {
+            return OpeningBook.open(Path.of(file));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * The default endgame tablebases, the directory in the
+     * system property "javachess.tb" or none.
+     * @return The tablebases or null.
+     * @throws UncheckedIOException The tables could not be opened.
+     */
+    public static Tablebases defaultTablebases() {
+        String directory = System.getProperty("javachess.tb");
+        if (directory == null) {
+            return null;
+        }
+
+        try {
+            return new Tablebases(Path.of(directory));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * The default thread count, system property
+     * "javachess.threads" or all available processors.
+     */
+    public static int defaultThreads() {
+        return Integer.getInteger("javachess.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Set the opening book, book moves are played without searching.
+     * @param book The book or null.
+     */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public OpeningBook getBook() {
+        return book;
+    }
+
+    /**
+     * Set the endgame tablebases, not while searching.
+     * @param tablebases The tablebases or null.
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+        search.setTablebases(tablebases);
+    }
+
+    /**
+     * The endgame tablebases.
+     * @return The tablebases or null.
+     */
+    public Tablebases getTablebases() {
+        return tablebases;
+    }
+
+    /**
+     * Start a search in the background. Stops a running search.
+     * @param board The position, copied before returning.
+     * @param limits The search budget.
+     * @return The result, completed on the engine thread
+     * or already completed if the position is in the book.
+     */
+    public CompletableFuture<SearchResult> search(Board board, SearchLimits limits) {
+        return search(board, limits, null);
+    }
+
+    /**
+     * Start a search in the background. Stops a running search.
+     * @param board The position, copied before returning.
+     * @param limits The search budget.
+     * @param listener Called for every completed iteration of this search
+     * (on the engine thread, not after it has been stopped or replaced), may be null.
+     * @return The result, completed on the engine thread
+     * or already completed if the position is in the book.
+     */
+    public CompletableFuture<SearchResult> search(Board board, SearchLimits limits, Consumer<SearchResult> listener) {
+        search.stop();
+        final int current = generation.incrementAndGet();
+
+        OpeningBook book = this.book;
+        if (book != null) {
+            int move = book.pickMove(board, random);
+            if (move != PackedMove.NONE) {
+                return CompletableFuture.completedFuture(new SearchResult(move, 0, 0, 0, 0, new int[] {move}));
+            }
+        }
+
+        Board position = new Board(true);
+        board.copyTo(position);
+
+        return CompletableFuture.supplyAsync(() -> {
+            table.newSearch();
+            // a stop() while this search was still queued is not lost
+            search.setCancelled(() -> generation.get() != current);
+            search.setListener(result -> {
+                if (generation.get() != current) {
+                    return; // stopped or replaced, e.g. a stopped first iteration
+                }
+                Consumer<SearchResult> engineListener = this.listener;
+                if (engineListener != null) {
+                    engineListener.accept(result);
+                }
+                if (listener != null) {
+                    listener.accept(result);
+                }
+            });
+            return search.search(position, limits);
+        }, executor);
+    }
+
+    /**
+     * Set a listener for every completed iteration of all searches
+     * (called on the engine thread, not for stopped or replaced searches).
+     * @param listener The listener or null.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Stop the running and queued searches, their futures complete with the best move so far.
+     */
+    public void stop() {
+        generation.incrementAndGet();
+        search.stop();
+    }
+
+    /**
+     * The result of the last completed iteration of the running or last search.
+     * @return The result or null.
+     */
+    public SearchResult getBestSoFar() {
+        return search.getBestSoFar();
+    }
+
+    /**
+     * Nodes per thread of the last search, index 0 is the main thread.
+     */
+    public long[] getThreadNodes() {
+        return search.getThreadNodes();
+    }
+
+    public int getThreads() {
+        return search.getThreads();
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Stop the search and the engine thread.
+     */
+    public void shutdown() {
+        search.shutdown();
+        executor.shutdown();
+    }
+}
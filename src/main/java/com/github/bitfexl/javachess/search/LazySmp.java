@@ -0,0 +1,199 @@
+package com.github.bitfexl.javachess.search;
+
+import com.github.bitfexl.javachess.eval.Evaluator;
+import com.github.bitfexl.javachess.eval.PstEvaluator;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.tablebase.Tablebases;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lazy SMP: all threads search the same root on their own
+ * board copy and share one transposition table. Helper threads
+ * start at different depths, so they fill the table with entries
+ * the main thread needs later. The result of the main thread is used.
+ */
+public class LazySmp {
+    private final TranspositionTable table;
+
+    private final Search[] searches;
+
+    private final ExecutorService helpers;
+
+    private volatile long[] threadNodes;
+
+    /**
+     * Init a parallel search.
+     * @param table The shared transposition table.
+     * @param threads The number of threads (at least 1), including the calling thread.
+     */
+    public LazySmp(TranspositionTable table, int threads) {
+        this(table, threads, PstEvaluator::new);
+    }
+
+    /**
+     * Init a parallel search.
+     * @param table The shared transposition table.
+     * @param threads The number of threads (at least 1), including the calling thread.
+     * @param evaluators Creates the static evaluation of each thread.
+     */
+    public LazySmp(TranspositionTable table, int threads, Supplier<Evaluator> evaluators) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread required.");
+        }
+
+        this.table = table;
+        this.searches = new Search[threads];
+        for (int i=0; i<threads; i++) {
+            searches[i] = new Search(table, evaluators.get());
+            searches[i].setStartDepth(1 + i % 2);
+        }
+
+        AtomicInteger id = new AtomicInteger(1);
+        this.helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread thread = new Thread(r, "search-helper-" + id.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threadNodes = new long[threads];
+    }
+
+    /**
+     * Search a position, blocks until the main thread finishes.
+     * The main search runs on the calling thread.
+     * @param position The position (not modified).
+     * @param limits The search budget (of the main thread).
+     * @return The result of the main thread, nodes of all threads.
+     */
+    public SearchResult search(Board position, SearchLimits limits) {
+        SearchLimits helperLimits = new SearchLimits(Search.MAX_PLY, SearchLimits.UNLIMITED, limits.getTimeMillis());
+
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (int i=1; i<searches.length; i++) {
+            Board copy = new Board(true);
+            position.copyTo(copy);
+            Search helper = searches[i];
+            futures.add(helpers.submit(() -> helper.search(copy, helperLimits)));
+        }
+
+        long start = System.nanoTime();
+        SearchResult result = searches[0].search(position, limits);
+
+        for (int i=1; i<searches.length; i++) {
+            awaitHelper(searches[i], futures.get(i - 1));
+        }
+        long nanos = System.nanoTime() - start;
+
+        long[] nodes = new long[searches.length];
+        long totalNodes = 0;
+        for (int i=0; i<searches.length; i++) {
+            nodes[i] = searches[i].getNodes();
+            totalNodes += nodes[i];
+        }
+        threadNodes = nodes;
+
+        return new SearchResult(result.getBestPackedMove(), result.getScore(), result.getDepth(),
+                totalNodes, nanos, result.getPv());
+    }
+
+    /**
+     * Stop a helper and wait for it. Stops repeatedly, a helper
+     * that has not started yet would reset a single stop.
+     */
+    private static void awaitHelper(Search helper, Future<SearchResult> future) {
+        while (true) {
+            helper.stop();
+            try {
+                future.get(1, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ex) {
+                // not started or not yet at a stop check
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Helper search failed.", ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stop the running search (from any thread).
+     */
+    public void stop() {
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Set a listener for completed iterations of the main thread.
+     * @param listener The listener or null.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        searches[0].setListener(listener);
+    }
+
+    /**
+     * Set a condition that stops the search (see Search.setCancelled()),
+     * checked by the main thread, which stops the helpers.
+     * @param cancelled The condition or null.
+     */
+    void setCancelled(BooleanSupplier cancelled) {
+        searches[0].setCancelled(cancelled);
+    }
+
+    /**
+     * Set the endgame tablebases probed by all threads.
+     * @param tablebases The tablebases or null.
+     */
+    public void setTablebases(Tablebases tablebases) {
+        for (Search search : searches) {
+            search.setTablebases(tablebases);
+        }
+    }
+
+    /**
+     * The result of the last completed iteration of the main thread.
+     * @return The result or null.
+     */
+    public SearchResult getBestSoFar() {
+        return searches[0].getBestSoFar();
+    }
+
+    /**
+     * Nodes per thread of the last search, index 0 is the main thread.
+     */
+    public long[] getThreadNodes() {
+        return threadNodes.clone();
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Stop the search and the helper threads.
+     */
+    public void shutdown() {
+        stop();
+        if (helpers != null) {
+            helpers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package com.github.bitfexl.javachess.search;
+
+import com.github.bitfexl.javachess.eval.Evaluator;
+import com.github.bitfexl.javachess.eval.PstEvaluator;
+import com.github.bitfexl.javachess.game.*;
+import com.github.bitfexl.javachess.pieces.Piece;
+import com.github.bitfexl.javachess.tablebase.Tablebases;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Single threaded alpha-beta search (negamax).
+ * Iterative deepening with aspiration windows, quiescence search
+ * and move ordering by hash move, MVV-LVA, killers and history.
+ * Positions in the endgame tablebases (if set) are scored by distance to mate,
+ * repetitions, the fifty-move rule and insufficient material as draws.
+ * Not thread safe, use one instance per thread (see Engine).
+ */
+public class Search {
+    public static final int INFINITY = 32_000;
+    public static final int MATE = 31_000;
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Piece values in centipawns, indexed by piece type.
+     */
+    static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    private static final int ASPIRATION_WINDOW = 50;
+
+    // move ordering scores
+    private static final int HASH_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int PROMOTION_SCORE = 90_000;
+    private static final int KILLER_SCORE = 80_000;
+
+    private final TranspositionTable table;
+
+    private final Evaluator evaluator;
+
+    private final Board board = new Board(true);
+
+    // per ply buffers
+    private final int[][] moves = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] moveScores = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+
+    // [color.ordinal()][from][to]
+    private final int[][][] history = new int[2][64][64];
+
+    private volatile boolean stopped;
+
+    private volatile SearchResult bestSoFar;
+
+    private Consumer<SearchResult> listener;
+
+    // checked with the limits, survives the reset of stopped at the start of a search
+    private volatile BooleanSupplier cancelled;
+
+    private Tablebases tablebases;
+
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private long startTime;
+
+    private int rootBestMove;
+
+    private int startDepth = 1;
+
+    /**
+     * Init a search.
+     * @param table The transposition table, may be shared between searches.
+     */
+    public Search(TranspositionTable table) {
+        this(table, new PstEvaluator());
+    }
+
+    /**
+     * Init a search.
+     * @param table The transposition table, may be shared between searches.
+     * @param evaluator The static evaluation, used by this search only.
+     */
+    public Search(TranspositionTable table, Evaluator evaluator) {
+        this.table = table;
+        this.evaluator = evaluator;
+        evaluator.attach(board);
+    }
+
+    /**
+     * Set a listener called after every completed iteration
+     * (on the search thread).
+     * @param listener The listener or null.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Set a condition that stops the search, checked with the limits.
+     * Unlike stop() it also works before the search has started
+     * (e.g. a search waiting in a queue, see Engine).
+     * @param cancelled The condition or null.
+     */
+    void setCancelled(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Set the endgame tablebases probed during the search.
+     * @param tablebases The tablebases or null.
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Set the depth of the first iteration, used to
+     * desynchronize helper threads of a parallel search.
+     * @param startDepth The first depth (at least 1).
+     */
+    void setStartDepth(int startDepth) {
+        this.startDepth = Math.max(1, startDepth);
+    }
+
+    /**
+     * Search a position. Blocks until a limit is reached or stop() is called.
+     * @param position The position to search (not modified).
+     * @param limits The search budget.
+     * @return The result of the last completed iteration.
+     */
+    public SearchResult search(Board position, SearchLimits limits) {
+        position.copyTo(board);
+
+        startTime = System.nanoTime();
+        deadline = limits.getTimeMillis() == SearchLimits.UNLIMITED ?
+                Long.MAX_VALUE : startTime + limits.getTimeMillis() * 1_000_000L;
+        maxNodes = limits.getNodes();
+        nodes = 0;
+        stopped = false;
+        bestSoFar = null;
+
+        for (int[] k : killers) {
+            Arrays.fill(k, 0);
+        }
+        for (int[][] color : history) {
+            for (int[] from : color) {
+                Arrays.fill(from, 0);
+            }
+        }
+
+        // always have a move, even if the first iteration gets stopped
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        int rootCount = MoveGenerator.generateLegal(board, board.getSideToMove(), rootMoves, 0);
+        SearchResult result = new SearchResult(rootCount > 0 ? rootMoves[0] : PackedMove.NONE,
+                0, 0, 0, 0, new int[0]);
+        bestSoFar = result;
+        rootBestMove = result.getBestPackedMove();
+        if (rootCount == 0) {
+            return result;
+        }
+
+        int score = 0;
+        for (int depth=startDepth; depth<=limits.getDepth(); depth++) {
+            score = aspiration(depth, score);
+            if (stopped && depth > startDepth) {
+                break;
+            }
+
+            result = new SearchResult(rootBestMove, score, depth, nodes, System.nanoTime() - startTime, principalVariation());
+            bestSoFar = result;
+            if (listener != null) {
+                listener.accept(result);
+            }
+
+            if (stopped || Math.abs(score) >= MATE - depth || noTimeForNextIteration()) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Stop a running search (from any thread).
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * The result of the last completed iteration of the current
+     * or last search (from any thread).
+     * @return The result or null if no search has been started.
+     */
+    public SearchResult getBestSoFar() {
+        return bestSoFar;
+    }
+
+    /**
+     * Nodes searched by the current or last search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    private int aspiration(int depth, int previousScore) {
+        int window = ASPIRATION_WINDOW;
+        int alpha = depth >= 4 ? previousScore - window : -INFINITY;
+        int beta = depth >= 4 ? previousScore + window : INFINITY;
+
+        while (true) {
+            int score = negamax(depth, 0, alpha, beta);
+            if (stopped) {
+                return score;
+            }
+
+            if (score <= alpha) {
+                alpha = Math.max(-INFINITY, alpha - window);
+            } else if (score >= beta) {
+                beta = Math.min(INFINITY, beta + window);
+            } else {
+                return score;
+            }
+            window *= 2;
+        }
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if ((++nodes & 1023) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluate();
+        }
+
+        // draws, a repetition within the search counts as a draw already
+        if (ply > 0 && (board.isRepetition() || board.isInsufficientMaterial()
+                || (board.isFiftyMoveRule() && !board.isCheckMate(board.getSideToMove())))) {
+            return 0;
+        }
+
+        if (ply > 0 && tablebases != null && Bitboards.count(board.getOccupied()) <= tablebases.getMaxPieces()) {
+            int wdl = tablebases.probeWdl(board);
+            if (wdl == Tablebases.DRAW) {
+                return 0;
+            } else if (wdl != Tablebases.UNKNOWN) {
+                int distance = ply + tablebases.probeDtm(board);
+                return wdl == Tablebases.WIN ? MATE - distance : -MATE + distance;
+            }
+        }
+
+        final boolean pvNode = beta - alpha > 1;
+        final long key = board.hash();
+
+        int hashMove = PackedMove.NONE;
+        long entry = table.probe(key);
+        if (entry != TranspositionTable.NONE) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && !pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        final Color us = board.getSideToMove();
+        final boolean inCheck = board.isInCheck(us);
+        if (inCheck) {
+            depth++; // check extension
+        }
+
+        if (depth <= 0) {
+            return quiesce(ply, alpha, beta);
+        }
+
+        final int[] plyMoves = moves[ply];
+        final int count = MoveGenerator.generateLegal(board, us, plyMoves, 0);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        scoreMoves(ply, count, hashMove, us);
+
+        final int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+
+        for (int i=0; i<count; i++) {
+            int move = pickMove(ply, i, count);
+
+            board.move(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            board.undoMove();
+
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                }
+            }
+
+            if (score > alpha) {
+                alpha = score;
+            }
+
+            if (alpha >= beta) {
+                if (!isTactical(move)) {
+                    updateQuietCutoff(ply, move, depth, us);
+                }
+                break;
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+
+        return bestScore;
+    }
+
+    private int quiesce(int ply, int alpha, int beta) {
+        if ((++nodes & 1023) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluate();
+        }
+
+        final Color us = board.getSideToMove();
+        final boolean inCheck = board.isInCheck(us);
+
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            bestScore = evaluate();
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        final int[] plyMoves = moves[ply];
+        final int count = MoveGenerator.generateLegal(board, us, plyMoves, 0);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        scoreMoves(ply, count, PackedMove.NONE, us);
+
+        for (int i=0; i<count; i++) {
+            int move = pickMove(ply, i, count);
+            if (!inCheck && !isTactical(move)) {
+                continue; // only captures and promotions, all evasions in check
+            }
+
+            board.move(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            board.undoMove();
+
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Static evaluation from the view of the side to move.
+     */
+    private int evaluate() {
+        return evaluator.evaluate(board);
+    }
+
+    private void scoreMoves(int ply, int count, int hashMove, Color us) {
+        final int[] plyMoves = moves[ply];
+        final int[] scores = moveScores[ply];
+        final int[][] colorHistory = history[us.ordinal()];
+
+        for (int i=0; i<count; i++) {
+            int move = plyMoves[i];
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+
+            if (hashMove != PackedMove.NONE && PackedMove.base(move) == PackedMove.base(hashMove)) {
+                scores[i] = HASH_MOVE_SCORE;
+            } else if (PackedMove.hasFlag(move, PackedMove.CAPTURE)) {
+                // most valuable victim, least valuable attacker
+                Piece victim = board.get(to);
+                int victimType = victim == null ? Piece.PAWN : victim.getType(); // en passant
+                scores[i] = CAPTURE_SCORE + victimType * 16 - board.get(from).getType()
+                        + PackedMove.promotion(move);
+            } else if (PackedMove.isPromotion(move)) {
+                scores[i] = PROMOTION_SCORE + PackedMove.promotion(move);
+            } else if (move == killers[ply][0]) {
+                scores[i] = KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                scores[i] = KILLER_SCORE - 1;
+            } else {
+                scores[i] = colorHistory[from][to];
+            }
+        }
+    }
+
+    /**
+     * Selection sort step: move the best remaining move to index.
+     */
+    private int pickMove(int ply, int index, int count) {
+        final int[] plyMoves = moves[ply];
+        final int[] scores = moveScores[ply];
+
+        int best = index;
+        for (int i=index+1; i<count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+
+        int move = plyMoves[best];
+        plyMoves[best] = plyMoves[index];
+        plyMoves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private void updateQuietCutoff(int ply, int move, int depth, Color us) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[] fromHistory = history[us.ordinal()][PackedMove.from(move)];
+        int to = PackedMove.to(move);
+        fromHistory[to] = Math.min(fromHistory[to] + depth * depth, KILLER_SCORE - 2);
+    }
+
+    private static boolean isTactical(int move) {
+        return PackedMove.hasFlag(move, PackedMove.CAPTURE) || PackedMove.isPromotion(move);
+    }
+
+    /**
+     * Mate scores are stored relative to the position, not the root.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        } else if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        } else if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Follow the hash moves from the root.
+     */
+    private int[] principalVariation() {
+        int[] pv = new int[MAX_PLY];
+        int length = 0;
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+
+        int move = rootBestMove;
+        while (move != PackedMove.NONE && length < MAX_PLY) {
+            int count = MoveGenerator.generateLegal(board, board.getSideToMove(), legal, 0);
+            int found = PackedMove.NONE;
+            for (int i=0; i<count; i++) {
+                if (PackedMove.base(legal[i]) == PackedMove.base(move)) {
+                    found = legal[i];
+                    break;
+                }
+            }
+            if (found == PackedMove.NONE) {
+                break;
+            }
+
+            pv[length++] = found;
+            board.move(found);
+
+            long entry = table.probe(board.hash());
+            move = entry == TranspositionTable.NONE ? PackedMove.NONE : TranspositionTable.move(entry);
+        }
+
+        for (int i=0; i<length; i++) {
+            board.undoMove();
+        }
+
+        return Arrays.copyOf(pv, length);
+    }
+
+    private boolean noTimeForNextIteration() {
+        // the next iteration usually takes longer than all previous ones together
+        return deadline != Long.MAX_VALUE && System.nanoTime() - startTime > (deadline - startTime) / 2;
+    }
+
+    private void checkLimits() {
+        BooleanSupplier cancelled = this.cancelled;
+        if (nodes >= maxNodes || System.nanoTime() >= deadline || (cancelled != null && cancelled.getAsBoolean())) {
+            stopped = true;
+        }
+    }
+}
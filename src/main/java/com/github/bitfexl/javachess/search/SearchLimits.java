@@ -0,0 +1,61 @@
+package com.github.bitfexl.javachess.search;
+
+/**
+ * Immutable budget of a search. The search stops at the
+ * first limit reached and returns the best move found so far.
+ */
+public class SearchLimits {
+    /**
+     * No limit for a value.
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+
+    /**
+     * Init search limits.
+     * @param depth The maximum depth in plies.
+     * @param nodes The maximum nodes or UNLIMITED.
+     * @param timeMillis The maximum time in ms or UNLIMITED.
+     */
+    public SearchLimits(int depth, long nodes, long timeMillis) {
+        this.depth = Math.max(1, Math.min(depth, Search.MAX_PLY - 1));
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * Search to a fixed depth.
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * Search for a fixed time.
+     */
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(Integer.MAX_VALUE, UNLIMITED, timeMillis);
+    }
+
+    /**
+     * Search a fixed number of nodes.
+     */
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(Integer.MAX_VALUE, nodes, UNLIMITED);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.bitfexl.javachess.search;
+
+import com.github.bitfexl.javachess.game.Move;
+import com.github.bitfexl.javachess.game.PackedMove;
+
+/**
+ * Immutable result of a (completed or stopped) search iteration.
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long nanos;
+    private final int[] pv;
+
+    /**
+     * @param bestMove The best move, packed (see PackedMove) or PackedMove.NONE.
+     * @param score The score in centipawns from the side to move.
+     * @param depth The completed depth.
+     * @param nodes The searched nodes.
+     * @param nanos The search time.
+     * @param pv The principal variation, packed moves.
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long nanos, int[] pv) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.pv = pv.clone();
+    }
+
+    /**
+     * The best move, packed (see PackedMove).
+     * @return The move or PackedMove.NONE if there are no legal moves.
+     */
+    public int getBestPackedMove() {
+        return bestMove;
+    }
+
+    /**
+     * The best move.
+     * @return The move or null if there are no legal moves.
+     */
+    public Move getBestMove() {
+        return bestMove == PackedMove.NONE ? null : Move.of(bestMove);
+    }
+
+    /**
+     * The score in centipawns from the view of the side to move.
+     * Mate scores are near +-Search.MATE.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Checks if the score is a forced mate.
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getNodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+
+    /**
+     * The principal variation, packed moves (see PackedMove).
+     */
+    public int[] getPv() {
+        return pv.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pvString = new StringBuilder();
+        for (int move : pv) {
+            pvString.append(' ').append(PackedMove.toString(move));
+        }
+        return "depth " + depth + " score " + score + " nodes " + nodes
+                + " nps " + getNodesPerSecond() + " pv" + pvString;
+    }
+}
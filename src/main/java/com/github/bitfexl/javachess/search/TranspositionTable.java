@@ -0,0 +1,229 @@
+package com.github.bitfexl.javachess.search;
+
+import com.github.bitfexl.javachess.game.PackedMove;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size transposition table backed by a long[].
+ * Lockless: every entry is stored as (key ^ data, data), a torn or
+ * foreign entry fails the xor check on probe and counts as a miss.
+ * Entries are grouped into buckets of two, the replacement policy
+ * picks the victim within a bucket.
+ * Data layout: bits 0-15 best move (PackedMove.base()),
+ * bits 16-31 score, bits 32-39 depth, bits 40-41 bound, bits 42-49 age.
+ */
+public class TranspositionTable {
+    public enum ReplacementPolicy {
+        /**
+         * Replace the shallower entry of a bucket.
+         */
+        DEPTH_PREFERRED,
+
+        /**
+         * Replace entries of older searches first, then the shallower entry.
+         */
+        AGING
+    }
+
+    /*
+     * Bound types, never 0 so stored data is never 0.
+     */
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    /**
+     * Returned by probe() if there is no entry.
+     */
+    public static final long NONE = 0;
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int BUCKET_LONGS = ENTRY_LONGS * 2;
+
+    // largest power of two bucket count that fits into an array
+    private static final long MAX_BUCKETS = 1L << 28;
+
+    private final long[] table;
+    private final int bucketMask;
+    private final ReplacementPolicy policy;
+
+    private volatile int age;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * Init a table with aging replacement.
+     * @param sizeMb The size in MB (rounded down to a power of two).
+     */
+    public TranspositionTable(int sizeMb) {
+        this(sizeMb, ReplacementPolicy.AGING);
+    }
+
+    /**
+     * Init a table.
+     * @param sizeMb The size in MB (rounded down to a power of two).
+     * @param policy The replacement policy.
+     * @throws IllegalArgumentException Size less than 1 MB.
+     */
+    public TranspositionTable(int sizeMb, ReplacementPolicy policy) {
+        if (sizeMb < 1) {
+            throw new IllegalArgumentException("Size must be at least 1 MB.");
+        }
+
+        long bytes = Long.highestOneBit(sizeMb) * 1024L * 1024L;
+        long buckets = Math.min(bytes / (BUCKET_LONGS * 8L), MAX_BUCKETS);
+        this.table = new long[(int) buckets * BUCKET_LONGS];
+        this.bucketMask = (int) buckets - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Look up a position.
+     * @param key The position key (see Board.hash()).
+     * @return The entry data (decode with move(), score(), ...) or NONE.
+     */
+    public long probe(long key) {
+        int bucket = index(key);
+
+        for (int i=bucket; i<bucket+BUCKET_LONGS; i+=ENTRY_LONGS) {
+            long data = table[i + 1];
+            long check = table[i];
+            if (data != NONE && (check ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+        }
+
+        if (table[bucket + 1] != NONE || table[bucket + ENTRY_LONGS + 1] != NONE) {
+            collisions.increment();
+        }
+        misses.increment();
+        return NONE;
+    }
+
+    /**
+     * Store a position.
+     * @param key The position key (see Board.hash()).
+     * @param move The best move, packed (see PackedMove) or 0.
+     * @param score The score (-32768 to 32767).
+     * @param depth The search depth (0 to 255).
+     * @param bound The bound type (EXACT, LOWER or UPPER).
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int bucket = index(key);
+        int currentAge = age;
+        int victim = -1;
+        int victimValue = Integer.MAX_VALUE;
+
+        for (int i=bucket; i<bucket+BUCKET_LONGS; i+=ENTRY_LONGS) {
+            long data = table[i + 1];
+
+            if (data == NONE || (table[i] ^ data) == key) {
+                victim = i;
+                if (data != NONE && move == 0) {
+                    move = move(data); // keep the known best move
+                }
+                break;
+            }
+
+            int value = depth(data);
+            if (policy == ReplacementPolicy.AGING && age(data) != (currentAge & 0xFF)) {
+                value -= 256;
+            }
+            if (value < victimValue) {
+                victim = i;
+                victimValue = value;
+            }
+        }
+
+        long data = (PackedMove.base(move) & 0xFFFFL)
+                | (score & 0xFFFFL) << 16
+                | (long) (depth & 0xFF) << 32
+                | (long) (bound & 0x3) << 40
+                | (long) (currentAge & 0xFF) << 42;
+
+        table[victim] = key ^ data;
+        table[victim + 1] = data;
+    }
+
+    /**
+     * Start a new search (ages existing entries).
+     */
+    public void newSearch() {
+        age++;
+    }
+
+    /**
+     * Remove all entries and reset the counters.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Misses where the bucket was occupied by other positions.
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    /**
+     * Number of entries the table can hold.
+     */
+    public int getCapacity() {
+        return table.length / ENTRY_LONGS;
+    }
+
+    /**
+     * Estimated usage in permille, sampled from the first 1000 entries.
+     */
+    public int getHashFull() {
+        int sample = Math.min(1000, getCapacity());
+        int used = 0;
+        for (int i=0; i<sample; i++) {
+            if (table[i * ENTRY_LONGS + 1] != NONE) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 42) & 0xFF;
+    }
+
+    private int index(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET_LONGS;
+    }
+}
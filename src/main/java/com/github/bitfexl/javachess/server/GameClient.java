@@ -0,0 +1,79 @@
+package com.github.bitfexl.javachess.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A connection to a game session (see GameProtocol).
+ */
+public interface GameClient extends Closeable {
+    /**
+     * Send a request and wait for the response.
+     * @param request The request line (without line separator).
+     * @return The response line.
+     * @throws IOException Connection failed or closed.
+     */
+    String send(String request) throws IOException;
+
+    /**
+     * Connect to a GameServer.
+     * @param host The host of the server.
+     * @param port The port of the server.
+     * @return The client, a new session.
+     * @throws IOException Connection failed.
+     */
+    static GameClient connect(String host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+
+        return new GameClient() {
+            @Override
+            public String send(String request) throws IOException {
+                out.write(request);
+                out.write('\n');
+                out.flush();
+                String response = in.readLine();
+                if (response == null) {
+                    throw new EOFException("Connection closed by the server.");
+                }
+                return response;
+            }
+
+            @Override
+            public void close() throws IOException {
+                socket.close();
+            }
+        };
+    }
+
+    /**
+     * A session in this process without a connection (loopback stand-in
+     * for the server, e.g. to measure the sessions without the network).
+     * @return The client, a new session.
+     */
+    static GameClient local() {
+        GameProtocol protocol = new GameProtocol();
+
+        return new GameClient() {
+            @Override
+            public String send(String request) throws IOException {
+                if (protocol.isClosed()) {
+                    throw new EOFException("Session closed.");
+                }
+                return protocol.handle(request);
+            }
+
+            @Override
+            public void close() { }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.bitfexl.javachess.server;
+
+import com.github.bitfexl.javachess.game.PackedMove;
+
+/**
+ * The line based text protocol of a game session, one response line per request line.
+ * <pre>
+ * NEW [fen]    start a new game (initial position without fen)  OK &lt;side to move&gt;
+ * MOVE move    play a move of the side to move (e.g. e2e4, e7e8q) OK &lt;status&gt; | ILLEGAL &lt;message&gt;
+ * MOVES        the legal moves of the side to move                OK [move ...]
+ * FEN          the position                                       OK &lt;fen&gt;
+ * QUIT         end the session                                    OK
+ * </pre>
+ * Status see GameSession.Status, other errors (e.g. a malformed fen or an illegal
+ * position for NEW) are answered with ERR &lt;message&gt;.
+ * Not thread safe, used by a single connection.
+ */
+public class GameProtocol {
+    private final GameSession session = new GameSession();
+
+    private boolean closed;
+
+    /**
+     * Handle a request.
+     * @param line The request line (without line separator).
+     * @return The response line (without line separator).
+     */
+    public String handle(String line) {
+        int space = line.indexOf(' ');
+        String command = space < 0 ? line : line.substring(0, space);
+        String argument = space < 0 ? "" : line.substring(space + 1).trim();
+
+        try {
+            switch (command) {
+                case "NEW" -> {
+                    if (argument.isEmpty()) {
+                        session.reset();
+                    } else {
+                        session.reset(argument);
+                    }
+                    return "OK " + session.getSideToMove();
+                }
+                case "MOVE" -> {
+                    try {
+                        session.move(argument);
+                    } catch (IllegalArgumentException | IllegalStateException ex) {
+                        return "ILLEGAL " + ex.getMessage();
+                    }
+                    return "OK " + session.getStatus();
+                }
+                case "MOVES" -> {
+                    StringBuilder builder = new StringBuilder("OK");
+                    for (int move : session.getLegalMoves()) {
+                        builder.append(' ').append(PackedMove.toString(move));
+                    }
+                    return builder.toString();
+                }
+                case "FEN" -> {
+                    return "OK " + session.getFen();
+                }
+                case "QUIT" -> {
+                    closed = true;
+                    return "OK";
+                }
+                default -> {
+                    return "ERR Unknown command " + command + ".";
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            return "ERR " + ex.getMessage();
+        }
+    }
+
+    /**
+     * true: QUIT received, false: session open;
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public GameSession getSession() {
+        return session;
+    }
+}
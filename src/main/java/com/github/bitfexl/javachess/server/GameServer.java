@@ -0,0 +1,153 @@
+package com.github.bitfexl.javachess.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless game server: every TCP connection is an independent game
+ * session (see GameProtocol), served by its own thread. Sessions run on
+ * virtual threads where available (Java 21+), so thousands of mostly
+ * idle connections are cheap; older runtimes fall back to a platform
+ * thread per session.
+ */
+public class GameServer implements Closeable {
+    // wait after a failed accept (e.g. out of file descriptors), doubled up to the max
+    private static final long ACCEPT_BACKOFF_MILLIS = 10;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService executor = newSessionExecutor();
+
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    private final CountDownLatch closedLatch = new CountDownLatch(1);
+
+    /**
+     * Start a server listening on all interfaces.
+     * @param port The port, 0: any free port (see getPort()).
+     * @throws IOException The port can not be bound.
+     */
+    public GameServer(int port) throws IOException {
+        this(null, port);
+    }
+
+    /**
+     * Start a server.
+     * @param address The address to listen on, null: all interfaces.
+     * @param port The port, 0: any free port (see getPort()).
+     * @throws IOException The port can not be bound.
+     */
+    public GameServer(InetAddress address, int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(address, port), 1024);
+        executor.execute(this::accept);
+    }
+
+    /**
+     * An executor with a new thread per task, virtual if the runtime supports them.
+     * Virtual threads are looked up reflectively, the project targets Java 17.
+     */
+    public static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "game-session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void accept() {
+        long backoff = ACCEPT_BACKOFF_MILLIS;
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException ex) {
+                if (closed) {
+                    return;
+                }
+                System.err.println("Accept failed, retrying in " + backoff + " ms: " + ex.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_ACCEPT_BACKOFF_MILLIS);
+                continue;
+            }
+            backoff = ACCEPT_BACKOFF_MILLIS;
+            executor.execute(() -> serve(socket));
+        }
+    }
+
+    private void serve(Socket socket) {
+        sessions.incrementAndGet();
+        GameProtocol protocol = new GameProtocol();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while (!protocol.isClosed() && (line = in.readLine()) != null) {
+                out.write(protocol.handle(line));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (SocketException ex) {
+            // connection reset or server closed
+        } catch (IOException ex) {
+            System.err.println("Session failed: " + ex.getMessage());
+        } finally {
+            sessions.decrementAndGet();
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * The number of open connections.
+     */
+    public int getSessions() {
+        return sessions.get();
+    }
+
+    /**
+     * Wait until the server is closed (the session threads are daemons).
+     */
+    public void awaitClose() throws InterruptedException {
+        closedLatch.await();
+    }
+
+    /**
+     * Stop accepting connections, open sessions end with their connection.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        closedLatch.countDown();
+        serverSocket.close();
+        executor.shutdown();
+    }
+}
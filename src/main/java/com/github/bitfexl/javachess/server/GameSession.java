@@ -0,0 +1,172 @@
+package com.github.bitfexl.javachess.server;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.Fen;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import com.github.bitfexl.javachess.game.PackedMove;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.util.Arrays;
+
+/**
+ * A game hosted by the server: its own board and turn state.
+ * Moves are validated against the legal moves of the side to move,
+ * which are generated once per position. Not thread safe, a session
+ * is driven by a single connection (see GameServer).
+ */
+public class GameSession {
+    public enum Status {
+        PLAYING, CHECKMATE, STALEMATE, REPETITION, FIFTY_MOVES, INSUFFICIENT_MATERIAL;
+    }
+
+    private static final String PROMOTIONS = "pnbrqk";
+
+    private final Board board = new Board();
+
+    // fens are loaded and checked here before replacing the game
+    private final Board candidate = new Board(true);
+
+    // legal moves of the side to move, see update()
+    private final int[] legal = new int[MoveGenerator.MAX_MOVES];
+    private int legalCount;
+
+    private Status status;
+
+    public GameSession() {
+        update();
+    }
+
+    /**
+     * Start a new game from the initial position.
+     */
+    public void reset() {
+        board.reset();
+        update();
+    }
+
+    /**
+     * Start a new game from a position.
+     * @param fen The position.
+     * @throws IllegalArgumentException Malformed fen or illegal position.
+     */
+    public void reset(String fen) {
+        Fen.load(candidate, fen);
+        checkLegal(candidate);
+        candidate.copyTo(board);
+        update();
+    }
+
+    /**
+     * Reject positions the move generator can not play: one king per side,
+     * the side not to move not in check, no pawns on the first or last rank.
+     * @throws IllegalArgumentException Illegal position.
+     */
+    private static void checkLegal(Board position) {
+        for (Color color : Color.values()) {
+            if (Bitboards.count(position.getPieces(Piece.KING, color)) != 1) {
+                throw new IllegalArgumentException("Illegal position: " + color + " needs exactly one king.");
+            }
+        }
+        if (position.isInCheck(position.getSideToMove().opponent())) {
+            throw new IllegalArgumentException("Illegal position: the side not to move is in check.");
+        }
+        long pawns = position.getPieces(Piece.PAWN, Color.WHITE) | position.getPieces(Piece.PAWN, Color.BLACK);
+        if ((pawns & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+            throw new IllegalArgumentException("Illegal position: pawns on the first or last rank.");
+        }
+    }
+
+    /**
+     * Play a move of the side to move.
+     * @param move The move in long algebraic notation (e.g. "e2e4", "e7e8q").
+     * @return The played move, packed (see PackedMove).
+     * @throws IllegalArgumentException Malformed or illegal move.
+     * @throws IllegalStateException The game is over.
+     */
+    public int move(CharSequence move) {
+        if (status != Status.PLAYING) {
+            throw new IllegalStateException("Game over: " + status + ".");
+        }
+
+        int base = parse(move);
+        for (int i=0; i<legalCount; i++) {
+            if (PackedMove.base(legal[i]) == base) {
+                board.move(legal[i]);
+                update();
+                return legal[i];
+            }
+        }
+        throw new IllegalArgumentException("Illegal move " + move + ".");
+    }
+
+    /**
+     * Parse a move in long algebraic notation.
+     * @return The base move (see PackedMove.base()).
+     * @throws IllegalArgumentException Malformed move.
+     */
+    private static int parse(CharSequence move) {
+        int length = move.length();
+        if (length != 4 && length != 5) {
+            throw new IllegalArgumentException("Malformed move " + move + ".");
+        }
+        int from = square(move, 0);
+        int to = square(move, 2);
+        int promotion = 0;
+        if (length == 5) {
+            promotion = PROMOTIONS.indexOf(move.charAt(4));
+            if (promotion < Piece.KNIGHT || promotion > Piece.QUEEN) {
+                throw new IllegalArgumentException("Malformed move " + move + ".");
+            }
+        }
+        return PackedMove.of(from, to, promotion, 0);
+    }
+
+    private static int square(CharSequence move, int index) {
+        int file = move.charAt(index) - 'a' + 1;
+        int rank = move.charAt(index + 1) - '0';
+        if (!Board.checkInBounds(file) || !Board.checkInBounds(rank)) {
+            throw new IllegalArgumentException("Malformed move " + move + ".");
+        }
+        return Bitboards.square(file, rank);
+    }
+
+    private void update() {
+        legalCount = MoveGenerator.generateLegal(board, board.getSideToMove(), legal, 0);
+        if (legalCount == 0) {
+            status = board.isInCheck(board.getSideToMove()) ? Status.CHECKMATE : Status.STALEMATE;
+        } else if (board.isThreefoldRepetition()) {
+            status = Status.REPETITION;
+        } else if (board.isFiftyMoveRule()) {
+            status = Status.FIFTY_MOVES;
+        } else if (board.isInsufficientMaterial()) {
+            status = Status.INSUFFICIENT_MATERIAL;
+        } else {
+            status = Status.PLAYING;
+        }
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Color getSideToMove() {
+        return board.getSideToMove();
+    }
+
+    /**
+     * The legal moves of the side to move, packed (see PackedMove).
+     */
+    public int[] getLegalMoves() {
+        return Arrays.copyOf(legal, legalCount);
+    }
+
+    public int getMoveCount() {
+        return board.getMoveCount();
+    }
+
+    public String getFen() {
+        return Fen.toString(board);
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.bitfexl.javachess.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Simulates concurrent games against game sessions (see GameClient):
+ * every game picks random legal moves (MOVES) and plays them (MOVE),
+ * finished games are restarted. Measures the moves per second and the
+ * latency of the MOVE requests (validation and round trip).
+ */
+public final class LoadTest {
+    public static class Stats {
+        private final int games;
+        private final long moves;
+        private final long finished;
+        private final long errors;
+        private final long nanos;
+        private final long[] latencies;
+
+        private Stats(int games, long moves, long finished, long errors, long nanos, long[] latencies) {
+            this.games = games;
+            this.moves = moves;
+            this.finished = finished;
+            this.errors = errors;
+            this.nanos = nanos;
+            this.latencies = latencies;
+        }
+
+        /**
+         * Concurrent games.
+         */
+        public int getGames() {
+            return games;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+
+        /**
+         * Games that ended (checkmate, draw) and were restarted.
+         */
+        public long getFinished() {
+            return finished;
+        }
+
+        /**
+         * Moves rejected by the server (should be 0).
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getMovesPerSecond() {
+            return nanos == 0 ? 0 : moves * 1_000_000_000L / nanos;
+        }
+
+        /**
+         * A percentile of the move latencies.
+         * @param percentile The percentile (0 to 100).
+         * @return The latency in nanoseconds.
+         */
+        public long getLatencyNanos(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d games, %,d moves (%,d games finished, %,d errors) in %d ms: %,d moves/s, "
+                            + "move latency p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    games, moves, finished, errors, nanos / 1_000_000, getMovesPerSecond(),
+                    getLatencyNanos(50) / 1e6, getLatencyNanos(99) / 1e6, getLatencyNanos(100) / 1e6);
+        }
+    }
+
+    // moves, finished games, errors and latencies of one game
+    private static class Result {
+        private final long[] latencies;
+        private int moves;
+        private long finished;
+        private long errors;
+
+        private Result(int moves) {
+            this.latencies = new long[moves];
+        }
+    }
+
+    private LoadTest() { }
+
+    /**
+     * Run a load test. All games connect first and then start at the same time.
+     * @param clients Opens a new session per game.
+     * @param games The number of concurrent games.
+     * @param moves The moves to play per game.
+     * @param seed The seed for the random moves.
+     * @return The stats.
+     * @throws Exception A session could not be opened or failed.
+     */
+    public static Stats run(Callable<GameClient> clients, int games, int moves, long seed) throws Exception {
+        if (games < 1 || moves < 0) {
+            throw new IllegalArgumentException("Invalid games " + games + " or moves " + moves + ".");
+        }
+
+        ExecutorService executor = GameServer.newSessionExecutor();
+        CountDownLatch connected = new CountDownLatch(games);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Result>> futures = new ArrayList<>(games);
+        try {
+            for (int i=0; i<games; i++) {
+                Random random = new Random(seed + i);
+                futures.add(executor.submit(() -> {
+                    GameClient client;
+                    try {
+                        client = clients.call();
+                    } finally {
+                        connected.countDown();
+                    }
+                    try (client) {
+                        start.await();
+                        return play(client, moves, random);
+                    }
+                }));
+            }
+
+            connected.await();
+            long startTime = System.nanoTime();
+            start.countDown();
+
+            List<Result> results = new ArrayList<>(games);
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException ex) {
+                    throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                }
+            }
+            long nanos = System.nanoTime() - startTime;
+
+            long totalMoves = 0;
+            long finished = 0;
+            long errors = 0;
+            for (Result result : results) {
+                totalMoves += result.moves;
+                finished += result.finished;
+                errors += result.errors;
+            }
+            long[] latencies = new long[(int) totalMoves];
+            int offset = 0;
+            for (Result result : results) {
+                System.arraycopy(result.latencies, 0, latencies, offset, result.moves);
+                offset += result.moves;
+            }
+            Arrays.sort(latencies);
+
+            return new Stats(games, totalMoves, finished, errors, nanos, latencies);
+        } finally {
+            start.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Result play(GameClient client, int moves, Random random) throws Exception {
+        Result result = new Result(moves);
+        expectOk(client.send("NEW"));
+
+        while (result.moves < moves) {
+            String legal = expectOk(client.send("MOVES"));
+            String[] candidates = legal.substring(2).trim().split(" ");
+            String move = candidates[random.nextInt(candidates.length)];
+
+            long start = System.nanoTime();
+            String response = client.send("MOVE " + move);
+            result.latencies[result.moves++] = System.nanoTime() - start;
+
+            if (!response.startsWith("OK")) {
+                result.errors++;
+                expectOk(client.send("NEW"));
+            } else if (!response.equals("OK " + GameSession.Status.PLAYING)) {
+                result.finished++;
+                expectOk(client.send("NEW"));
+            }
+        }
+
+        client.send("QUIT");
+        return result;
+    }
+
+    private static String expectOk(String response) {
+        if (!response.startsWith("OK")) {
+            throw new IllegalStateException("Unexpected response: " + response);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.bitfexl.javachess.tablebase;
+
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pieces of an endgame, named like "KRPvKR"
+ * (white pieces, "v", black pieces, strongest first).
+ * Kings are implicit, every side has exactly one.
+ * Immutable.
+ */
+public class Material {
+    private static final String LETTERS = "PNBRQ";
+
+    // [color.ordinal()][type], pawn to queen
+    private final int[][] counts;
+
+    private final String name;
+
+    private Material(int[][] counts) {
+        this.counts = counts;
+        this.name = side(counts[Color.WHITE.ordinal()]) + "v" + side(counts[Color.BLACK.ordinal()]);
+    }
+
+    /**
+     * Parse a material name.
+     * @param name The name (e.g. "KQvKR").
+     * @return The material.
+     * @throws IllegalArgumentException The name is malformed.
+     */
+    public static Material parse(String name) {
+        String[] sides = name.toUpperCase().split("V", -1);
+        if (sides.length != 2) {
+            throw new IllegalArgumentException("Malformed material \"" + name + "\", expected e.g. \"KQvKR\".");
+        }
+
+        int[][] counts = new int[2][Piece.KING];
+        for (int i=0; i<2; i++) {
+            String side = sides[i];
+            if (side.isEmpty() || side.charAt(0) != 'K') {
+                throw new IllegalArgumentException("Malformed material \"" + name + "\", each side needs a king.");
+            }
+            int[] sideCounts = counts[i == 0 ? Color.WHITE.ordinal() : Color.BLACK.ordinal()];
+            for (int j=1; j<side.length(); j++) {
+                int type = LETTERS.indexOf(side.charAt(j));
+                if (type < 0) {
+                    throw new IllegalArgumentException("Unknown piece '" + side.charAt(j) + "' in \"" + name + "\".");
+                }
+                sideCounts[type]++;
+            }
+        }
+        return new Material(counts);
+    }
+
+    /**
+     * The material of a position.
+     * @param board The position.
+     * @return The material or null if a side has not exactly one king.
+     */
+    public static Material of(Board board) {
+        int[][] counts = new int[2][Piece.KING];
+        for (int c=0; c<2; c++) {
+            Color color = c == Color.WHITE.ordinal() ? Color.WHITE : Color.BLACK;
+            if (Long.bitCount(board.getPieces(Piece.KING, color)) != 1) {
+                return null;
+            }
+            for (int type=Piece.PAWN; type<Piece.KING; type++) {
+                counts[c][type] = Long.bitCount(board.getPieces(type, color));
+            }
+        }
+        return new Material(counts);
+    }
+
+    private static String side(int[] counts) {
+        StringBuilder side = new StringBuilder("K");
+        for (int type=Piece.QUEEN; type>=Piece.PAWN; type--) {
+            side.append(String.valueOf(LETTERS.charAt(type)).repeat(counts[type]));
+        }
+        return side.toString();
+    }
+
+    /**
+     * The number of pieces of a type and color.
+     * @param type The piece type (pawn to queen, see Piece.getType()).
+     * @param color The color.
+     */
+    public int getCount(int type, Color color) {
+        return counts[color.ordinal()][type];
+    }
+
+    /**
+     * The number of pieces including both kings.
+     */
+    public int getPieceCount() {
+        int count = 2;
+        for (int[] side : counts) {
+            for (int n : side) {
+                count += n;
+            }
+        }
+        return count;
+    }
+
+    public boolean hasPawns() {
+        return counts[0][Piece.PAWN] + counts[1][Piece.PAWN] > 0;
+    }
+
+    /**
+     * The material with colors swapped.
+     */
+    public Material flip() {
+        return new Material(new int[][] {counts[1].clone(), counts[0].clone()});
+    }
+
+    /**
+     * Tables are stored for the canonical orientation only,
+     * where white has the stronger side.
+     * @return true: canonical, false: the flipped material is canonical;
+     */
+    public boolean isCanonical() {
+        int white = strength(counts[Color.WHITE.ordinal()]);
+        int black = strength(counts[Color.BLACK.ordinal()]);
+        if (white != black) {
+            return white > black;
+        }
+        return side(counts[Color.WHITE.ordinal()]).compareTo(side(counts[Color.BLACK.ordinal()])) >= 0;
+    }
+
+    public Material canonical() {
+        return isCanonical() ? this : flip();
+    }
+
+    private static int strength(int[] counts) {
+        return counts[Piece.PAWN] + 3 * counts[Piece.KNIGHT] + 3 * counts[Piece.BISHOP]
+                + 5 * counts[Piece.ROOK] + 9 * counts[Piece.QUEEN];
+    }
+
+    /**
+     * The canonical materials reachable by a capture or
+     * a promotion, without the bare kings.
+     */
+    public List<Material> getSubMaterials() {
+        List<Material> materials = new ArrayList<>();
+        for (int c=0; c<2; c++) {
+            for (int type=Piece.PAWN; type<Piece.KING; type++) {
+                if (counts[c][type] == 0) {
+                    continue;
+                }
+
+                // capture
+                int[][] captured = {counts[0].clone(), counts[1].clone()};
+                captured[c][type]--;
+                add(materials, new Material(captured));
+
+                // promotion
+                if (type == Piece.PAWN) {
+                    for (int promotion=Piece.KNIGHT; promotion<=Piece.QUEEN; promotion++) {
+                        int[][] promoted = {counts[0].clone(), counts[1].clone()};
+                        promoted[c][Piece.PAWN]--;
+                        promoted[c][promotion]++;
+                        add(materials, new Material(promoted));
+                    }
+                }
+            }
+        }
+        return materials;
+    }
+
+    private static void add(List<Material> materials, Material material) {
+        Material canonical = material.canonical();
+        if (canonical.getPieceCount() > 2 && !materials.contains(canonical)) {
+            materials.add(canonical);
+        }
+    }
+
+    /**
+     * The name (e.g. "KQvKR").
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Material && ((Material) other).name.equals(name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,601 @@
+package com.github.bitfexl.javachess.tablebase;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import com.github.bitfexl.javachess.game.PackedMove;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Generates WDL and DTM tablebases (see Tablebases) by retrograde analysis.
+ * <p>
+ * A first pass sets up every position on a Board and counts its legal
+ * moves, moves leaving the table (captures, promotions) are looked up in
+ * the smaller tables. Then positions are resolved one ply of distance
+ * to mate at a time: predecessors (un-moves) of lost positions are won,
+ * predecessors whose last move got refuted are lost. Positions never
+ * resolved are draws. Both passes run in parallel over slices of the
+ * positions. A double push next to a pawn of the opponent is worth at most
+ * what the en passant capture is worth to the opponent (from the smaller
+ * tables), the tables themselves hold no en passant squares.
+ * <p>
+ * Memory: 12 bytes per position and side to move
+ * (about 1.3 GB for 5 pieces without pawns).
+ */
+public class TablebaseGenerator {
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    // generation states
+    private static final byte UNKNOWN = 0;
+    private static final byte WIN = 1;
+    private static final byte LOSS = 2;
+    private static final byte DRAW = 3;
+    private static final byte INVALID = 4;
+
+    // exit limit: a position with a drawn or won exit can not be lost
+    private static final short NO_LOSS = Short.MAX_VALUE;
+
+    private static final int SLICE = 1 << 14;
+
+    /**
+     * A growable list of positions (index << 2 | side to move << 1 | lost).
+     */
+    private static class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void addAll(IntList other) {
+            for (int i=0; i<other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+    }
+
+    /**
+     * The state of one material being generated.
+     */
+    private class Build {
+        private final TablebaseIndex index;
+
+        // [color.ordinal()][position]
+        private final byte[][] states;
+        private final short[][] distances;
+        private final byte[][] counters;
+        private final short[][] exitLosses;
+
+        // positions to resolve, by ply
+        private final List<IntList> levels = new ArrayList<>();
+
+        private Build(Material material) {
+            this.index = new TablebaseIndex(material);
+            int size = index.size();
+            states = new byte[2][size];
+            distances = new short[2][size];
+            counters = new byte[2][size];
+            exitLosses = new short[2][size];
+        }
+
+        private synchronized void schedule(int level, IntList positions) {
+            while (levels.size() <= level) {
+                levels.add(new IntList());
+            }
+            levels.get(level).addAll(positions);
+        }
+    }
+
+    private final Path directory;
+
+    private final Tablebases tablebases;
+
+    private final int threads;
+
+    private Consumer<String> listener;
+
+    /**
+     * Init a generator.
+     * @param directory The tablebase directory, created if it does not exist.
+     * @param threads The number of threads.
+     * @throws IOException The existing tables could not be opened.
+     */
+    public TablebaseGenerator(Path directory, int threads) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.tablebases = new Tablebases(directory);
+        this.threads = threads;
+    }
+
+    /**
+     * Set a listener for progress messages.
+     * @param listener The listener or null.
+     */
+    public void setListener(Consumer<String> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * The generated and existing tables.
+     */
+    public Tablebases getTablebases() {
+        return tablebases;
+    }
+
+    /**
+     * Generate the table of a material and all smaller tables it
+     * depends on, existing tables are not generated again.
+     * @param material The material, 3 to 5 pieces.
+     * @throws IOException A table could not be written.
+     */
+    public void generate(Material material) throws IOException {
+        material = material.canonical();
+        if (material.getPieceCount() < 3 || material.getPieceCount() > 5) {
+            throw new IllegalArgumentException("Only 3 to 5 pieces are supported: " + material);
+        }
+        if (tablebases.contains(material)) {
+            return;
+        }
+
+        for (Material sub : material.getSubMaterials()) {
+            generate(sub);
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Build build = new Build(material);
+            initialize(build, executor);
+            int levels = solve(build, executor);
+            write(build);
+            tablebases.load(material);
+
+            if (listener != null) {
+                listener.accept(String.format("%s: %,d positions, %d plies, %d ms", material,
+                        2L * build.index.size(), levels, (System.nanoTime() - start) / 1_000_000));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating " + material + ".", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Generating " + material + " failed.", ex.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * First pass: validity, terminal positions, moves leaving the table.
+     */
+    private void initialize(Build build, ExecutorService executor) throws InterruptedException, ExecutionException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start=0; start<build.index.size(); start+=SLICE) {
+            int from = start;
+            int to = Math.min(start + SLICE, build.index.size());
+            tasks.add(() -> {
+                initialize(build, from, to);
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+
+    private void initialize(Build build, int from, int to) {
+        TablebaseIndex index = build.index;
+        Board board = new Board(true);
+        int[] squares = new int[index.getSlots()];
+        int[] children = new int[MoveGenerator.MAX_MOVES];
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        List<IntList> scheduled = new ArrayList<>();
+
+        for (int position=from; position<to; position++) {
+            // invalid: placement collisions and copies of symmetric positions
+            if (!index.decode(position, squares) || index.encode(squares) != position) {
+                build.states[0][position] = INVALID;
+                build.states[1][position] = INVALID;
+                continue;
+            }
+
+            board.clear();
+            for (int i=0; i<squares.length; i++) {
+                board.set(squares[i], Piece.of(index.getType(i), index.getColor(i)));
+            }
+
+            for (Color us : new Color[] {Color.WHITE, Color.BLACK}) {
+                final int c = us.ordinal();
+                board.setSideToMove(us);
+                if (board.isInCheck(us.opponent())) {
+                    build.states[c][position] = INVALID;
+                    continue;
+                }
+
+                int count = MoveGenerator.generateLegal(board, us, moves, 0);
+                if (count == 0) {
+                    if (board.isInCheck(us)) {
+                        add(scheduled, 0, position, us, true);
+                    } else {
+                        build.states[c][position] = DRAW;
+                    }
+                    continue;
+                }
+
+                int childCount = 0;
+                int bestWin = Integer.MAX_VALUE;
+                int maxLoss = 0;
+                boolean drawExit = false;
+
+                for (int m=0; m<count; m++) {
+                    int move = moves[m];
+                    if (PackedMove.hasFlag(move, PackedMove.DOUBLE_PUSH)) {
+                        // won by an en passant capture of the opponent: leaves the table
+                        board.move(move);
+                        int capture = enPassant(board);
+                        board.undoMove();
+                        if ((capture & 3) == Tablebases.WIN_CODE) {
+                            maxLoss = Math.max(maxLoss, Tablebases.plies(capture) + 1);
+                            continue;
+                        }
+                    }
+                    if (!PackedMove.hasFlag(move, PackedMove.CAPTURE) && !PackedMove.isPromotion(move)) {
+                        int child = child(index, squares, move);
+                        if (!contains(children, childCount, child)) {
+                            children[childCount++] = child;
+                        }
+                        continue;
+                    }
+
+                    // leaves the table, look up the smaller table
+                    board.move(move);
+                    int code = Bitboards.count(board.getOccupied()) == 2 ? Tablebases.DRAW_CODE : tablebases.probe(board);
+                    board.undoMove();
+                    if (code < 0) {
+                        throw new IllegalStateException("No table for a move of " + index.getMaterial() + ".");
+                    }
+
+                    int plies = Tablebases.plies(code);
+                    switch (code & 3) {
+                        case Tablebases.LOSS_CODE -> bestWin = Math.min(bestWin, plies + 1);
+                        case Tablebases.WIN_CODE -> maxLoss = Math.max(maxLoss, plies + 1);
+                        default -> drawExit = true;
+                    }
+                }
+
+                build.counters[c][position] = (byte) childCount;
+                if (bestWin != Integer.MAX_VALUE) {
+                    build.exitLosses[c][position] = NO_LOSS;
+                    add(scheduled, bestWin, position, us, false);
+                } else if (drawExit) {
+                    build.exitLosses[c][position] = NO_LOSS;
+                    if (childCount == 0) {
+                        build.states[c][position] = DRAW;
+                    }
+                } else {
+                    build.exitLosses[c][position] = (short) maxLoss;
+                    if (childCount == 0) {
+                        add(scheduled, maxLoss, position, us, true);
+                    }
+                }
+            }
+        }
+
+        for (int level=0; level<scheduled.size(); level++) {
+            if (scheduled.get(level) != null) {
+                build.schedule(level, scheduled.get(level));
+            }
+        }
+    }
+
+    /**
+     * The best en passant capture after a double push (see Tablebases.probeEnPassant()).
+     * @param board The position after the double push.
+     * @return The code for the side to move or Tablebases.NO_CAPTURE.
+     */
+    private int enPassant(Board board) {
+        if (board.getEnPassantSquare() == Board.NO_SQUARE) {
+            return Tablebases.NO_CAPTURE;
+        }
+        int code = tablebases.probeEnPassant(board);
+        if (code == Tablebases.MISSING) {
+            throw new IllegalStateException("No table for an en passant capture in " + board + ".");
+        }
+        return code;
+    }
+
+    /**
+     * The index of the position after a move inside the table.
+     */
+    private static int child(TablebaseIndex index, int[] squares, int move) {
+        int from = PackedMove.from(move);
+        int[] child = squares.clone();
+        for (int i=0; i<child.length; i++) {
+            if (child[i] == from) {
+                child[i] = PackedMove.to(move);
+                break;
+            }
+        }
+        return index.encode(child);
+    }
+
+    /**
+     * Resolve positions by increasing distance to mate.
+     * @return The number of levels (plies).
+     */
+    private int solve(Build build, ExecutorService executor) throws InterruptedException, ExecutionException {
+        int level = 0;
+        for (; level<build.levels.size(); level++) {
+            // resolve, the same position may be scheduled more than once
+            IntList scheduled = build.levels.get(level);
+            IntList resolved = new IntList();
+            for (int i=0; i<scheduled.size; i++) {
+                int entry = scheduled.values[i];
+                int position = entry >>> 2;
+                int c = (entry >>> 1) & 1;
+                if (build.states[c][position] == UNKNOWN) {
+                    build.states[c][position] = (entry & 1) != 0 ? LOSS : WIN;
+                    build.distances[c][position] = (short) level;
+                    resolved.add(entry);
+                }
+            }
+            build.levels.set(level, null);
+
+            // propagate to the predecessors, states do not change meanwhile
+            final int current = level;
+            List<Callable<Void>> tasks = new ArrayList<>();
+            int step = Math.max(SLICE / 16, (resolved.size + threads - 1) / threads);
+            for (int start=0; start<resolved.size; start+=step) {
+                int from = start;
+                int to = Math.min(start + step, resolved.size);
+                tasks.add(() -> {
+                    propagate(build, resolved, from, to, current);
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+
+        // the rest can not be forced
+        for (byte[] states : build.states) {
+            for (int i=0; i<states.length; i++) {
+                if (states[i] == UNKNOWN) {
+                    states[i] = DRAW;
+                }
+            }
+        }
+        return level;
+    }
+
+    private void propagate(Build build, IntList resolved, int from, int to, int level) {
+        TablebaseIndex index = build.index;
+        int[] squares = new int[index.getSlots()];
+        int[] parents = new int[MoveGenerator.MAX_MOVES];
+        int[] doublePushes = new int[MoveGenerator.MAX_MOVES];
+        Board board = new Board(true);
+        List<IntList> scheduled = new ArrayList<>();
+
+        for (int r=from; r<to; r++) {
+            int entry = resolved.values[r];
+            boolean lost = (entry & 1) != 0;
+            Color mover = ((entry >>> 1) & 1) == Color.WHITE.ordinal() ? Color.BLACK : Color.WHITE;
+            final int c = mover.ordinal();
+            index.decode(entry >>> 2, squares);
+
+            // every predecessor once, even if several un-moves lead to it
+            int parentCount = unmoves(index, squares, mover, parents, doublePushes);
+            for (int p=0; p<parentCount; p++) {
+                int parent = parents[p];
+                if (build.states[c][parent] != UNKNOWN) {
+                    continue;
+                }
+
+                int capture = Tablebases.NO_CAPTURE;
+                if (doublePushes[p] >= 0) {
+                    // the opponent may capture en passant, same as in initialize()
+                    board.clear();
+                    for (int i=0; i<squares.length; i++) {
+                        board.set(squares[i], Piece.of(index.getType(i), index.getColor(i)));
+                    }
+                    board.setSideToMove(mover.opponent());
+                    board.setEnPassantSquare(doublePushes[p]);
+                    capture = enPassant(board);
+                }
+
+                if (lost) {
+                    // won unless the capture saves the opponent, lost longer if it is the slower loss
+                    if (capture == Tablebases.NO_CAPTURE) {
+                        add(scheduled, level + 1, parent, mover, false);
+                    } else if ((capture & 3) == Tablebases.LOSS_CODE) {
+                        add(scheduled, Math.max(level, Tablebases.plies(capture)) + 1, parent, mover, false);
+                    }
+                } else if ((capture & 3) != Tablebases.WIN_CODE && decrement(build.counters[c], parent) == 0) {
+                    // all moves refuted (won captures are exits, not counted)
+                    int exitLoss = build.exitLosses[c][parent];
+                    if (exitLoss != NO_LOSS) {
+                        add(scheduled, Math.max(level + 1, exitLoss), parent, mover, true);
+                    }
+                }
+            }
+        }
+
+        for (int l=0; l<scheduled.size(); l++) {
+            if (scheduled.get(l) != null) {
+                build.schedule(l, scheduled.get(l));
+            }
+        }
+    }
+
+    /**
+     * The distinct positions (side to move: mover) from which
+     * a non capturing, non promoting move of the mover leads to a position.
+     * @param doublePushes Written per predecessor: the en passant square if the move
+     *                     is a double push next to a pawn of the opponent, otherwise -1.
+     * @return The number of predecessors written.
+     */
+    private static int unmoves(TablebaseIndex index, int[] squares, Color mover, int[] parents, int[] doublePushes) {
+        long occupied = 0;
+        for (int square : squares) {
+            occupied |= Bitboards.bit(square);
+        }
+
+        int count = 0;
+        int[] parent = squares.clone();
+        for (int i=0; i<squares.length; i++) {
+            if (index.getColor(i) != mover) {
+                continue;
+            }
+
+            int square = squares[i];
+            long origins;
+            int doublePush = -1;
+            if (index.getType(i) == Piece.PAWN) {
+                int back = mover == Color.WHITE ? -8 : 8;
+                int rank = Bitboards.rank(square);
+                origins = 0;
+                if (rank != (mover == Color.WHITE ? 2 : 7) && (occupied & Bitboards.bit(square + back)) == 0) {
+                    origins |= Bitboards.bit(square + back);
+                    if (rank == (mover == Color.WHITE ? 4 : 5) && (occupied & Bitboards.bit(square + 2 * back)) == 0) {
+                        origins |= Bitboards.bit(square + 2 * back);
+                        if ((Bitboards.pawnAttacks(square + back, mover) & enemyPawns(index, squares, mover)) != 0) {
+                            doublePush = square + 2 * back;
+                        }
+                    }
+                }
+            } else {
+                origins = MoveGenerator.attacks(index.getType(i), square, mover, occupied) & ~occupied;
+            }
+
+            for (; origins != 0; origins &= origins - 1) {
+                parent[i] = Bitboards.first(origins);
+                int position = index.encode(parent);
+                if (position < 0) {
+                    continue;
+                }
+                int found = indexOf(parents, count, position);
+                if (found < 0) {
+                    doublePushes[count] = parent[i] == doublePush ? (square + doublePush) / 2 : -1;
+                    parents[count++] = position;
+                } else if (parent[i] != doublePush) {
+                    doublePushes[found] = -1; // also reached by a plain move
+                }
+            }
+            parent[i] = square;
+        }
+        return count;
+    }
+
+    /**
+     * Atomically decrement a counter.
+     * A compare and set loop, getAndAdd on byte arrays is miscompiled by some JITs.
+     * @return The new value.
+     */
+    private static int decrement(byte[] counters, int index) {
+        byte count;
+        do {
+            count = (byte) COUNTERS.getVolatile(counters, index);
+        } while (!COUNTERS.compareAndSet(counters, index, count, (byte) (count - 1)));
+        return (byte) (count - 1);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        return indexOf(values, count, value) >= 0;
+    }
+
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i=0; i<count; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long enemyPawns(TablebaseIndex index, int[] squares, Color mover) {
+        long pawns = 0;
+        for (int i=0; i<squares.length; i++) {
+            if (index.getType(i) == Piece.PAWN && index.getColor(i) != mover) {
+                pawns |= Bitboards.bit(squares[i]);
+            }
+        }
+        return pawns;
+    }
+
+    private static void add(List<IntList> scheduled, int level, int position, Color sideToMove, boolean lost) {
+        while (scheduled.size() <= level) {
+            scheduled.add(null);
+        }
+        if (scheduled.get(level) == null) {
+            scheduled.set(level, new IntList());
+        }
+        scheduled.get(level).add(position << 2 | sideToMove.ordinal() << 1 | (lost ? 1 : 0));
+    }
+
+    private void write(Build build) throws IOException {
+        int size = build.index.size();
+        String name = build.index.getMaterial().getName();
+
+        ByteBuffer wdl = ByteBuffer.allocate(Tablebases.HEADER_BYTES + 2 * ((size + 3) / 4)).order(ByteOrder.LITTLE_ENDIAN);
+        wdl.putInt(Tablebases.WDL_MAGIC).putInt(Tablebases.VERSION).putInt(size).putInt(0);
+        ByteBuffer dtm = ByteBuffer.allocate(Tablebases.HEADER_BYTES + 2 * size).order(ByteOrder.LITTLE_ENDIAN);
+        dtm.putInt(Tablebases.DTM_MAGIC).putInt(Tablebases.VERSION).putInt(size).putInt(0);
+
+        for (Color us : new Color[] {Color.WHITE, Color.BLACK}) {
+            byte[] states = build.states[us.ordinal()];
+            short[] distances = build.distances[us.ordinal()];
+            int packed = 0;
+            for (int i=0; i<size; i++) {
+                int code = switch (states[i]) {
+                    case WIN -> Tablebases.WIN_CODE;
+                    case LOSS -> Tablebases.LOSS_CODE;
+                    case INVALID -> Tablebases.INVALID_CODE;
+                    default -> Tablebases.DRAW_CODE;
+                };
+                packed |= code << (2 * (i & 3));
+                if ((i & 3) == 3 || i == size - 1) {
+                    wdl.put((byte) packed);
+                    packed = 0;
+                }
+                dtm.put((byte) (states[i] == WIN || states[i] == LOSS ? Math.min(255, (distances[i] + 1) / 2) : 0));
+            }
+        }
+
+        write(directory.resolve(name + ".dtm"), dtm);
+        write(directory.resolve(name + ".wdl"), wdl);
+    }
+
+    private static void write(Path file, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.github.bitfexl.javachess.tablebase;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import java.util.Arrays;
+
+/**
+ * Index function of the positions of a material (one side to move).
+ * <p>
+ * Slots: white king, black king, pawns, other pieces (white first,
+ * strongest first). The king pair is reduced by symmetry (462 pairs
+ * without pawns, 1806 with pawns), pawns are indexed over the 48 squares
+ * of ranks 2-7 and the other pieces over the squares not taken by the
+ * previous slots. Without pawns every index is a different placement,
+ * only equal pieces (swapped) and positions symmetric to the a1-h8
+ * diagonal (kept once, see encode()) are stored more than once.
+ */
+final class TablebaseIndex {
+    /**
+     * Positions per side to move at most, keeps indices and flags in an int.
+     */
+    static final int MAX_SIZE = 1 << 29;
+
+    private static final int PAWN_SQUARES = 48;
+
+    // [pawns ? 1 : 0][white king * 64 + black king]: pair index or -1 (not canonical or illegal)
+    private static final int[][] KING_INDEX = new int[2][64 * 64];
+
+    // [pawns ? 1 : 0][pair index]: white king | black king << 6
+    private static final int[][] KING_PAIRS = new int[2][];
+
+    static {
+        for (int pawns=0; pawns<2; pawns++) {
+            int[] pairs = new int[64 * 64];
+            int count = 0;
+            Arrays.fill(KING_INDEX[pawns], -1);
+            for (int white=0; white<64; white++) {
+                for (int black=0; black<64; black++) {
+                    if (white != black && (Bitboards.kingAttacks(white) & Bitboards.bit(black)) == 0
+                            && isCanonical(white, black, pawns == 1)) {
+                        KING_INDEX[pawns][white * 64 + black] = count;
+                        pairs[count++] = white | black << 6;
+                    }
+                }
+            }
+            KING_PAIRS[pawns] = Arrays.copyOf(pairs, count);
+        }
+    }
+
+    private final Material material;
+
+    private final int[] types;
+
+    private final Color[] colors;
+
+    // index radix of every slot, slot 1 holds the king pair
+    private final int[] radix;
+
+    private final int pawnSlots;
+
+    private final boolean pawns;
+
+    private final int size;
+
+    TablebaseIndex(Material material) {
+        this.material = material;
+        this.pawns = material.hasPawns();
+
+        int slots = material.getPieceCount();
+        types = new int[slots];
+        colors = new Color[slots];
+        types[0] = Piece.KING;
+        colors[0] = Color.WHITE;
+        types[1] = Piece.KING;
+        colors[1] = Color.BLACK;
+
+        int slot = 2;
+        for (Color color : new Color[] {Color.WHITE, Color.BLACK}) {
+            for (int i=0; i<material.getCount(Piece.PAWN, color); i++) {
+                types[slot] = Piece.PAWN;
+                colors[slot++] = color;
+            }
+        }
+        pawnSlots = slot - 2;
+        for (Color color : new Color[] {Color.WHITE, Color.BLACK}) {
+            for (int type=Piece.QUEEN; type>Piece.PAWN; type--) {
+                for (int i=0; i<material.getCount(type, color); i++) {
+                    types[slot] = type;
+                    colors[slot++] = color;
+                }
+            }
+        }
+
+        radix = new int[slots];
+        long size = KING_PAIRS[pawns ? 1 : 0].length;
+        for (int i=2; i<slots; i++) {
+            radix[i] = i < 2 + pawnSlots ? PAWN_SQUARES : 64 - i;
+            size *= radix[i];
+        }
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Material " + material + " has too many positions: " + size);
+        }
+        this.size = (int) size;
+    }
+
+    /**
+     * Canonical king pairs: without pawns the white king in the a1-d1-d4
+     * triangle (and the black king on or below the diagonal if the white
+     * king is on it), with pawns the white king on files a-d.
+     */
+    private static boolean isCanonical(int white, int black, boolean pawns) {
+        int file = white & 7;
+        int rank = white >>> 3;
+        if (pawns) {
+            return file <= 3;
+        }
+        return file <= 3 && rank <= file && (rank != file || (black >>> 3) <= (black & 7));
+    }
+
+    /**
+     * Apply a symmetry to a square.
+     * @param square The square.
+     * @param transform Bit 4: swap file and rank, 1: mirror files, 2: mirror ranks.
+     */
+    static int transform(int square, int transform) {
+        int file = square & 7;
+        int rank = square >>> 3;
+        if ((transform & 4) != 0) {
+            int t = file;
+            file = rank;
+            rank = t;
+        }
+        if ((transform & 1) != 0) {
+            file = 7 - file;
+        }
+        if ((transform & 2) != 0) {
+            rank = 7 - rank;
+        }
+        return rank * 8 + file;
+    }
+
+    /**
+     * The index of a position, reduced by symmetry.
+     * Positions symmetric to each other get the same index.
+     * @param squares The squares of the pieces in slot order.
+     * @return The index or -1 (kings adjacent, pawn on the first or last rank).
+     */
+    int encode(int[] squares) {
+        int best = -1;
+        int transforms = pawns ? 2 : 8;
+        for (int t=0; t<transforms; t++) {
+            int kings = KING_INDEX[pawns ? 1 : 0][transform(squares[0], t) * 64 + transform(squares[1], t)];
+            if (kings < 0) {
+                continue;
+            }
+
+            // two candidates only if both kings are on the diagonal, keep the smaller index
+            int index = encode(squares, t, kings);
+            if (index >= 0 && (best < 0 || index < best)) {
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    private int encode(int[] squares, int t, int kings) {
+        int index = kings;
+        long occupied = Bitboards.bit(transform(squares[0], t)) | Bitboards.bit(transform(squares[1], t));
+        for (int i=2; i<squares.length; i++) {
+            int square = transform(squares[i], t);
+            if (i < 2 + pawnSlots) {
+                if (square < 8 || square >= 56) {
+                    return -1;
+                }
+                index = index * PAWN_SQUARES + square - 8;
+            } else {
+                // rank among the free squares
+                index = index * radix[i] + Long.bitCount(~occupied & (Bitboards.bit(square) - 1));
+            }
+            occupied |= Bitboards.bit(square);
+        }
+        return index;
+    }
+
+    /**
+     * The position of an index.
+     * @param index The index (0 to size - 1).
+     * @param squares The squares of the pieces in slot order, written.
+     * @return true: valid placement, false: pawns on occupied squares;
+     */
+    boolean decode(int index, int[] squares) {
+        for (int i=squares.length-1; i>=2; i--) {
+            squares[i] = index % radix[i];
+            index /= radix[i];
+        }
+        int kings = KING_PAIRS[pawns ? 1 : 0][index];
+        squares[0] = kings & 63;
+        squares[1] = kings >>> 6;
+
+        long occupied = Bitboards.bit(squares[0]) | Bitboards.bit(squares[1]);
+        for (int i=2; i<squares.length; i++) {
+            if (i < 2 + pawnSlots) {
+                squares[i] += 8;
+                if ((occupied & Bitboards.bit(squares[i])) != 0) {
+                    return false;
+                }
+            } else {
+                long free = ~occupied;
+                for (int n=0; n<squares[i]; n++) {
+                    free &= free - 1;
+                }
+                squares[i] = Bitboards.first(free);
+            }
+            occupied |= Bitboards.bit(squares[i]);
+        }
+        return true;
+    }
+
+    Material getMaterial() {
+        return material;
+    }
+
+    int getSlots() {
+        return types.length;
+    }
+
+    int getType(int slot) {
+        return types[slot];
+    }
+
+    Color getColor(int slot) {
+        return colors[slot];
+    }
+
+    /**
+     * Number of indices per side to move.
+     */
+    int size() {
+        return size;
+    }
+}
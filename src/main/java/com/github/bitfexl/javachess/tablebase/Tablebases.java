@@ -0,0 +1,335 @@
+package com.github.bitfexl.javachess.tablebase;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.CastlingRights;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import com.github.bitfexl.javachess.game.PackedMove;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Probes endgame tablebases (see TablebaseGenerator), memory mapped.
+ * <p>
+ * Every material has a WDL file ("KQvKR.wdl": 2 bits per position)
+ * and a DTM file ("KQvKR.dtm": moves to mate, 1 byte per position, at
+ * most 255), both with a 16 byte header (magic, version, positions per
+ * side to move, reserved) followed by the positions with white to move,
+ * then with black to move. Positions with castling rights are not in the
+ * tables. The tables hold positions without en passant square, a possible
+ * en passant capture is resolved by probing the positions after it
+ * (see probeEnPassant()). Thread safe.
+ */
+public class Tablebases implements Closeable {
+    public static final int LOSS = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int UNKNOWN = 2;
+
+    // 2 bit codes in the WDL files
+    static final int DRAW_CODE = 0;
+    static final int WIN_CODE = 1;
+    static final int LOSS_CODE = 2;
+    static final int INVALID_CODE = 3;
+
+    // probeEnPassant() results other than a code
+    static final int NO_CAPTURE = -1;
+    static final int MISSING = -2;
+
+    static final int WDL_MAGIC = 0x5754434A; // "JCTW" little endian
+    static final int DTM_MAGIC = 0x4454434A; // "JCTD" little endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    /**
+     * The mapped files of a material.
+     */
+    private static class Table {
+        private final TablebaseIndex index;
+        private final FileChannel wdlChannel;
+        private final FileChannel dtmChannel;
+        private final MappedByteBuffer wdl;
+        private final MappedByteBuffer dtm;
+
+        private Table(TablebaseIndex index, FileChannel wdlChannel, FileChannel dtmChannel) throws IOException {
+            this.index = index;
+            this.wdlChannel = wdlChannel;
+            this.dtmChannel = dtmChannel;
+            this.wdl = map(wdlChannel, WDL_MAGIC, index.size(), (index.size() + 3) / 4);
+            this.dtm = map(dtmChannel, DTM_MAGIC, index.size(), index.size());
+        }
+
+        private static MappedByteBuffer map(FileChannel channel, int magic, int size, int sideBytes) throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != magic || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != size || buffer.limit() != HEADER_BYTES + 2L * sideBytes) {
+                throw new IllegalArgumentException("Not a tablebase file of this material.");
+            }
+            return buffer;
+        }
+
+        private int wdl(Color sideToMove, int position) {
+            int offset = HEADER_BYTES + (sideToMove == Color.WHITE ? 0 : (index.size() + 3) / 4) + position / 4;
+            return (wdl.get(offset) >>> (2 * (position & 3))) & 3;
+        }
+
+        private int dtm(Color sideToMove, int position) {
+            return dtm.get(HEADER_BYTES + (sideToMove == Color.WHITE ? 0 : index.size()) + position) & 0xFF;
+        }
+    }
+
+    private final Path directory;
+
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
+
+    private volatile int maxPieces;
+
+    /**
+     * Open all tablebases in a directory.
+     * @param directory The directory, may not exist (no tables).
+     * @throws IOException A table could not be opened.
+     */
+    public Tablebases(Path directory) throws IOException {
+        this.directory = directory;
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.wdl")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                load(Material.parse(name.substring(0, name.length() - 4)));
+            }
+        }
+    }
+
+    /**
+     * Open the files of a material.
+     * @param material The material.
+     * @throws IOException The files could not be opened.
+     */
+    void load(Material material) throws IOException {
+        FileChannel wdl = FileChannel.open(directory.resolve(material.getName() + ".wdl"), StandardOpenOption.READ);
+        FileChannel dtm = null;
+        try {
+            dtm = FileChannel.open(directory.resolve(material.getName() + ".dtm"), StandardOpenOption.READ);
+            Table old = tables.put(material.getName(), new Table(new TablebaseIndex(material), wdl, dtm));
+            if (old != null) {
+                old.wdlChannel.close();
+                old.dtmChannel.close();
+            }
+        } catch (RuntimeException | IOException ex) {
+            wdl.close();
+            if (dtm != null) {
+                dtm.close();
+            }
+            throw ex;
+        }
+        maxPieces = Math.max(maxPieces, material.getPieceCount());
+    }
+
+    /**
+     * Checks if the table of a material (or of its flipped material) is available.
+     */
+    public boolean contains(Material material) {
+        return tables.containsKey(material.getName()) || tables.containsKey(material.flip().getName());
+    }
+
+    /**
+     * The most pieces (including kings) of any available table, 0 if there are none.
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * The game theoretical result of a position.
+     * @param board The position.
+     * @return WIN, DRAW or LOSS for the side to move, UNKNOWN if the position is not in a table.
+     */
+    public int probeWdl(Board board) {
+        int code = probe(board);
+        if (code < 0) {
+            return UNKNOWN;
+        }
+        return switch (code & 3) {
+            case WIN_CODE -> WIN;
+            case LOSS_CODE -> LOSS;
+            case DRAW_CODE -> DRAW;
+            default -> UNKNOWN;
+        };
+    }
+
+    /**
+     * The distance to mate of a position.
+     * @param board The position.
+     * @return Plies to mate with best play (won or lost, see probeWdl()),
+     *         -1 if the position is a draw or not in a table.
+     */
+    public int probeDtm(Board board) {
+        int code = probe(board);
+        if (code < 0) {
+            return -1;
+        }
+        return plies(code);
+    }
+
+    /**
+     * Distance to mate of a probe code in plies, -1 for draws.
+     */
+    static int plies(int code) {
+        int moves = code >>> 2;
+        return switch (code & 3) {
+            case WIN_CODE -> 2 * moves - 1;
+            case LOSS_CODE -> 2 * moves;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Probe a position.
+     * @return The WDL code | moves to mate << 2 or -1 if not in a table.
+     */
+    int probe(Board board) {
+        if (Bitboards.count(board.getOccupied()) > maxPieces || board.getCastlingRights() != CastlingRights.NONE) {
+            return -1;
+        }
+
+        int code = probeTable(board);
+        if (code < 0 || board.getEnPassantSquare() == Board.NO_SQUARE) {
+            return code;
+        }
+
+        // the table ignores the en passant square: take the capture if it is better
+        int capture = probeEnPassant(board);
+        if (capture == NO_CAPTURE) {
+            return code;
+        } else if (capture == MISSING) {
+            return -1;
+        }
+        if ((code & 3) == LOSS_CODE && (code >>> 2) == 0 || (code & 3) == DRAW_CODE && !hasOtherMove(board)) {
+            return capture; // the capture is the only move (mate or stalemate in the table)
+        }
+        return score(capture) > score(code) ? capture : code;
+    }
+
+    /**
+     * The best en passant capture of the side to move.
+     * @param board The position, with an en passant square.
+     * @return The code after the best legal capture (for the side to move, see probe()),
+     *         NO_CAPTURE if there is no legal en passant capture,
+     *         MISSING if a position after a capture is not in a table.
+     */
+    int probeEnPassant(Board board) {
+        Board copy = new Board(true);
+        board.copyTo(copy);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(copy, copy.getSideToMove(), moves, 0);
+
+        int best = NO_CAPTURE;
+        for (int i=0; i<count; i++) {
+            if (!PackedMove.hasFlag(moves[i], PackedMove.EN_PASSANT)) {
+                continue;
+            }
+
+            copy.move(moves[i]);
+            int child = Bitboards.count(copy.getOccupied()) == 2 ? DRAW_CODE : probe(copy);
+            copy.undoMove();
+            if (child < 0) {
+                return MISSING;
+            }
+
+            // one ply more, seen from the other side
+            int code = switch (child & 3) {
+                case LOSS_CODE -> WIN_CODE | Math.min(255, (child >>> 2) + 1) << 2;
+                case WIN_CODE -> LOSS_CODE | (child >>> 2) << 2;
+                default -> DRAW_CODE;
+            };
+            if (best == NO_CAPTURE || score(code) > score(best)) {
+                best = code;
+            }
+        }
+        return best;
+    }
+
+    private static boolean hasOtherMove(Board board) {
+        Board copy = new Board(true);
+        board.copyTo(copy);
+        copy.setEnPassantSquare(Board.NO_SQUARE);
+        return MoveGenerator.hasLegalMove(copy, copy.getSideToMove());
+    }
+
+    /**
+     * Orders codes for the side to move: fast wins first, slow losses last.
+     */
+    private static int score(int code) {
+        return switch (code & 3) {
+            case WIN_CODE -> 1000 - (code >>> 2);
+            case LOSS_CODE -> -1000 + (code >>> 2);
+            default -> 0;
+        };
+    }
+
+    /**
+     * Look up a position in its table, ignoring the en passant square.
+     */
+    private int probeTable(Board board) {
+        Material material = Material.of(board);
+        if (material == null) {
+            return -1;
+        }
+        boolean flip = false;
+        Table table = tables.get(material.getName());
+        if (table == null) {
+            table = tables.get(material.flip().getName());
+            flip = true;
+        }
+        if (table == null) {
+            return -1;
+        }
+
+        // flipped: mirror the ranks and swap the colors
+        TablebaseIndex index = table.index;
+        int[] squares = new int[index.getSlots()];
+        long used = 0;
+        for (int i=0; i<squares.length; i++) {
+            Color color = flip ? index.getColor(i).opponent() : index.getColor(i);
+            int square = Bitboards.first(board.getPieces(index.getType(i), color) & ~used);
+            used |= Bitboards.bit(square);
+            squares[i] = flip ? square ^ 56 : square;
+        }
+        Color sideToMove = flip ? board.getSideToMove().opponent() : board.getSideToMove();
+
+        int position = index.encode(squares);
+        if (position < 0) {
+            return -1;
+        }
+        int wdl = table.wdl(sideToMove, position);
+        if (wdl == INVALID_CODE) {
+            return -1;
+        }
+        return wdl | table.dtm(sideToMove, position) << 2;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Table table : tables.values()) {
+            table.wdlChannel.close();
+            table.dtmChannel.close();
+        }
+        tables.clear();
+        maxPieces = 0;
+    }
+}
@@ -0,0 +1,277 @@
+package com.github.bitfexl.javachess.ui;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.game.Move;
+import com.github.bitfexl.javachess.game.MoveGenerator;
+import com.github.bitfexl.javachess.game.PackedMove;
+import com.github.bitfexl.javachess.pieces.Piece;
+import com.github.bitfexl.javachess.search.Engine;
+import com.github.bitfexl.javachess.search.SearchLimits;
+import com.github.bitfexl.javachess.search.SearchResult;
+import com.github.bitfexl.javachess.tablebase.Tablebases;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Analyzes positions on a worker thread so the EDT never generates moves
+ * or searches: legal moves, checks and game end, and optionally an engine
+ * evaluation shown as evaluation bar and best move arrow on a ChessPanel.
+ * A new position cancels the work for the previous one, only results of
+ * the current position are published (on the EDT).
+ * analyze() and setEvaluation() must be called on the EDT.
+ */
+public class AnalysisService {
+    public enum GameEnd {
+        NONE, CHECKMATE, STALEMATE, REPETITION, FIFTY_MOVES, INSUFFICIENT_MATERIAL, TABLEBASE_DRAW;
+    }
+
+    /**
+     * The analysis of a position. Immutable.
+     */
+    public static class Analysis {
+        private final Color sideToMove;
+        private final int[] moves;
+        private final long checks;
+        private final GameEnd gameEnd;
+
+        private Analysis(Color sideToMove, int[] moves, long checks, GameEnd gameEnd) {
+            this.sideToMove = sideToMove;
+            this.moves = moves;
+            this.checks = checks;
+            this.gameEnd = gameEnd;
+        }
+
+        public Color getSideToMove() {
+            return sideToMove;
+        }
+
+        /**
+         * The legal moves of the side to move, packed (see PackedMove).
+         */
+        public int[] getMoves() {
+            return moves.clone();
+        }
+
+        /**
+         * The legal moves of a piece, promotions collapsed into a single
+         * move per target square (like Piece.getTrueValidMoves()).
+         * @param file The file of the piece (1 to 8).
+         * @param rank The rank of the piece (1 to 8).
+         */
+        public List<Move> getMoves(int file, int rank) {
+            int from = Bitboards.square(file, rank);
+            List<Move> list = new ArrayList<>();
+            for (int move : moves) {
+                if (PackedMove.from(move) != from) {
+                    continue;
+                }
+                if (PackedMove.isPromotion(move)) {
+                    if (PackedMove.promotion(move) != Piece.QUEEN) {
+                        continue;
+                    }
+                    move = PackedMove.of(from, PackedMove.to(move));
+                }
+                list.add(Move.of(move));
+            }
+            return list;
+        }
+
+        /**
+         * The squares of the kings in check (see Bitboards).
+         */
+        public long getChecks() {
+            return checks;
+        }
+
+        public GameEnd getGameEnd() {
+            return gameEnd;
+        }
+    }
+
+    private static final long EVALUATION_MILLIS = 3000;
+
+    private final ChessPanel panel;
+
+    private final Engine engine;
+
+    private final EvalBarOverlay evalBar = new EvalBarOverlay();
+
+    private final ArrowOverlay bestMove = new ArrowOverlay();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "analysis");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // incremented for every new position, results of older ones are dropped
+    private volatile int generation;
+
+    private Future<?> running;
+
+    // the last analyzed position, read only after analyze()
+    private Board position;
+    private long positionKey;
+    private int positionMoves = -1;
+
+    private Consumer<Analysis> listener;
+
+    // written on the EDT, read by the worker
+    private volatile boolean evaluation;
+
+    /**
+     * Init an analysis service.
+     * @param panel The panel to show the evaluation on.
+     * @param engine The engine to evaluate with, not used for anything else.
+     */
+    public AnalysisService(ChessPanel panel, Engine engine) {
+        this.panel = panel;
+        this.engine = engine;
+    }
+
+    /**
+     * Set the listener for the analysis of every position (called on the EDT).
+     * @param listener The listener or null.
+     */
+    public void setListener(Consumer<Analysis> listener) {
+        this.listener = listener;
+    }
+
+    public boolean isEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Show the engine evaluation of the analyzed positions.
+     * @param evaluation true: evaluate and show bar and arrow, false: hide them;
+     */
+    public void setEvaluation(boolean evaluation) {
+        if (evaluation == this.evaluation) {
+            return;
+        }
+        this.evaluation = evaluation;
+        if (evaluation) {
+            evalBar.setScore(0, false);
+            bestMove.setMove(PackedMove.NONE);
+            panel.addDecoration(evalBar);
+            panel.addDecoration(bestMove);
+            if (position != null) {
+                restart(position);
+            }
+        } else {
+            engine.stop();
+            panel.removeDecoration(evalBar);
+            panel.removeDecoration(bestMove);
+        }
+    }
+
+    /**
+     * Analyze a position in the background, cancels the analysis of the previous position.
+     * @param board The position, copied before returning.
+     * @return true: new position analyzed, false: same position as before (nothing done);
+     */
+    public boolean analyze(Board board) {
+        if (board.hash() == positionKey && board.getMoveCount() == positionMoves) {
+            return false;
+        }
+        positionKey = board.hash();
+        positionMoves = board.getMoveCount();
+
+        Board copy = new Board(true);
+        board.copyTo(copy);
+        restart(copy);
+        return true;
+    }
+
+    private void restart(Board board) {
+        position = board;
+        final int current = ++generation;
+        engine.stop();
+        if (running != null) {
+            running.cancel(true);
+        }
+        running = executor.submit(() -> run(board, current));
+    }
+
+    private void run(Board board, int current) {
+        Color us = board.getSideToMove();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, us, buffer, 0);
+
+        long checks = 0;
+        for (Color color : Color.values()) {
+            if (board.isInCheck(color)) {
+                checks |= board.getPieces(Piece.KING, color);
+            }
+        }
+
+        GameEnd gameEnd;
+        Tablebases tablebases = engine.getTablebases();
+        if (count == 0) {
+            gameEnd = board.isInCheck(us) ? GameEnd.CHECKMATE : GameEnd.STALEMATE;
+        } else if (board.isThreefoldRepetition()) {
+            gameEnd = GameEnd.REPETITION;
+        } else if (board.isFiftyMoveRule()) {
+            gameEnd = GameEnd.FIFTY_MOVES;
+        } else if (board.isInsufficientMaterial()) {
+            gameEnd = GameEnd.INSUFFICIENT_MATERIAL;
+        } else if (tablebases != null && tablebases.probeWdl(board) == Tablebases.DRAW) {
+            gameEnd = GameEnd.TABLEBASE_DRAW;
+        } else {
+            gameEnd = GameEnd.NONE;
+        }
+
+        Analysis analysis = new Analysis(us, Arrays.copyOf(buffer, count), checks, gameEnd);
+        SwingUtilities.invokeLater(() -> {
+            if (current == generation && listener != null) {
+                listener.accept(analysis);
+            }
+        });
+
+        if (evaluation && gameEnd == GameEnd.NONE && current == generation) {
+            // the listener belongs to this search, a previous one can not report as this position
+            engine.search(board, SearchLimits.time(EVALUATION_MILLIS), result -> publishEvaluation(result, current, us))
+                    .thenAccept(result -> publishEvaluation(result, current, us));
+        } else if (gameEnd != GameEnd.NONE) {
+            SwingUtilities.invokeLater(() -> {
+                if (current == generation) {
+                    evalBar.setScore(gameEnd == GameEnd.CHECKMATE ? (us == Color.WHITE ? -1 : 1) : 0,
+                            gameEnd == GameEnd.CHECKMATE);
+                    bestMove.setMove(PackedMove.NONE);
+                    panel.repaint();
+                }
+            });
+        }
+    }
+
+    private void publishEvaluation(SearchResult result, int current, Color us) {
+        if (result == null || current != generation) {
+            return;
+        }
+        int score = us == Color.WHITE ? result.getScore() : -result.getScore();
+        SwingUtilities.invokeLater(() -> {
+            if (current == generation && evaluation) {
+                evalBar.setScore(score, result.isMate());
+                bestMove.setMove(result.getBestPackedMove());
+                panel.repaint();
+            }
+        });
+    }
+
+    /**
+     * Stop the worker and the engine.
+     */
+    public void shutdown() {
+        engine.shutdown();
+        executor.shutdownNow();
+    }
+}
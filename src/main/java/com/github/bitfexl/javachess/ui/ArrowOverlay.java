@@ -0,0 +1,72 @@
+package com.github.bitfexl.javachess.ui;
+
+import com.github.bitfexl.javachess.game.Bitboards;
+import com.github.bitfexl.javachess.game.PackedMove;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+
+/**
+ * An arrow from the start to the target square of a move
+ * (e.g. the best move of the engine). Use as decoration
+ * (see ChessPanel.addDecoration()).
+ */
+public class ArrowOverlay implements Overlay {
+    private static final Color COLOR = new Color(0, 120, 200, 150);
+
+    private volatile int move = PackedMove.NONE;
+
+    /**
+     * Set the move to point out.
+     * @param move The packed move (see PackedMove), PackedMove.NONE for no arrow.
+     */
+    public void setMove(int move) {
+        this.move = move;
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    @Override
+    public void render(ChessPanel panel, Graphics2D g2d) {
+        int move = this.move;
+        if (move == PackedMove.NONE) {
+            return;
+        }
+
+        Rectangle from = panel.getSquareBounds(Bitboards.file(PackedMove.from(move)), Bitboards.rank(PackedMove.from(move)));
+        Rectangle to = panel.getSquareBounds(Bitboards.file(PackedMove.to(move)), Bitboards.rank(PackedMove.to(move)));
+        double x1 = from.getCenterX();
+        double y1 = from.getCenterY();
+        double x2 = to.getCenterX();
+        double y2 = to.getCenterY();
+
+        double length = Math.hypot(x2 - x1, y2 - y1);
+        double shaft = from.width * 0.12;
+        double head = from.width * 0.35;
+        double headWidth = from.width * 0.3;
+
+        // an arrow along the x-axis, rotated onto the move
+        Path2D.Double arrow = new Path2D.Double();
+        arrow.moveTo(0, -shaft / 2);
+        arrow.lineTo(length - head, -shaft / 2);
+        arrow.lineTo(length - head, -headWidth);
+        arrow.lineTo(length, 0);
+        arrow.lineTo(length - head, headWidth);
+        arrow.lineTo(length - head, shaft / 2);
+        arrow.lineTo(0, shaft / 2);
+        arrow.closePath();
+
+        Graphics2D g = (Graphics2D) g2d.create();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.translate(x1, y1);
+        g.rotate(Math.atan2(y2 - y1, x2 - x1));
+        g.setColor(COLOR);
+        g.fill(arrow);
+        g.dispose();
+    }
+
+    @Override
+    public void clicked(ChessPanel panel, int x, int y) { }
+}
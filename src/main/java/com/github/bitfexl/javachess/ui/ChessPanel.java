@@ -1,30 +1,82 @@
 package com.github.bitfexl.javachess.ui;
 
 import com.github.bitfexl.javachess.game.Board;
+import com.github.bitfexl.javachess.game.BoardSnapshot;
 import com.github.bitfexl.javachess.pieces.Piece;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Objects;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws a board with markers and an overlay.
+ * The pieces come from a BoardSnapshot (see setSnapshot()).
+ * The squares are cached as a background image, changes repaint
+ * only the affected squares (see repaintChanges()), the overlay
+ * is drawn once per frame on top.
+ */
 public class ChessPanel extends JPanel implements MouseListener {
     public enum Marker {
         MOVE, CAPTURE, CHECK, SELECTED;
     }
 
+    /**
+     * Paint times of the panel since the last reset.
+     */
+    public static class FrameStats {
+        private final long frames;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long lastNanos;
+
+        private FrameStats(long frames, long totalNanos, long maxNanos, long lastNanos) {
+            this.frames = frames;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.lastNanos = lastNanos;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public long getAverageNanos() {
+            return frames == 0 ? 0 : totalNanos / frames;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getLastNanos() {
+            return lastNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d frames, avg %.3f ms, max %.3f ms, last %.3f ms",
+                    frames, getAverageNanos() / 1e6, maxNanos / 1e6, lastNanos / 1e6);
+        }
+    }
+
     private final Color COLOR_LIGHT = Color.LIGHT_GRAY;
     private final Color COLOR_DARK = Color.GRAY;
     private final Color COLOR_MARKING = new Color(0, 100, 0, 80);
     private final Color COLOR_CHECK = new Color(150, 0, 0, 80);
     private final Color COLOR_SELECTED = new Color(0, 0, 150, 80);
 
-    private final String SET_NAME = "standard";
+    // shared by all panels, see SpriteCache
+    private static final SpriteCache SPRITES = new SpriteCache();
+
+    private String pieceSet = "standard";
 
     /**
      * true: black pov, false: white pov;
@@ -38,23 +90,78 @@ public class ChessPanel extends JPanel implements MouseListener {
 
     private Overlay overlay;
 
-    // row * 1000 + col
-    private final HashMap<Integer, Marker> markings = new HashMap<>();
+    // drawn below the overlay, never clicked (e.g. evaluation bar)
+    private final List<Overlay> decorations = new ArrayList<>();
+
+    // row * 8 + col (view squares)
+    private final Marker[] markings = new Marker[64];
+
+    // the pieces on the view squares as of the last repaintChanges()
+    private final Piece[] shownPieces = new Piece[64];
 
-    private final HashMap<String, BufferedImage> pieces = new HashMap<>();
+    // the squares, rebuilt on resize
+    private BufferedImage background;
 
-    private final Board chessBoard = new Board(true);
+    private long frames;
+    private long totalFrameNanos;
+    private long maxFrameNanos;
+    private long lastFrameNanos;
+
+    // scaled sprites of the current set and size by SpriteCache.index(), filled on demand
+    private final BufferedImage[] sprites = new BufferedImage[2 * Piece.TYPE_COUNT];
+    private int spriteWidth;
+    private int spriteHeight;
+
+    // the position to draw, set from any thread
+    private volatile BoardSnapshot snapshot = BoardSnapshot.EMPTY;
 
     public ChessPanel() {
         addMouseListener(this);
+        SPRITES.preload(pieceSet);
+
+        // scale the sprites for the new size in the background
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                prepareSprites();
+            }
+        });
     }
 
     /**
-     * The board which gets drawn.
-     * @return The board to copy pieces to.
+     * Scale the sprites for the current size in the background, in device
+     * pixels like paintComponent() asks for them (high dpi screens scale the graphics).
      */
-    public Board getChessBoard() {
-        return chessBoard;
+    private void prepareSprites() {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        AffineTransform transform = configuration != null ? configuration.getDefaultTransform() : new AffineTransform();
+        int width = (int) Math.round(getWidth() / 8 * transform.getScaleX());
+        int height = (int) Math.round(getHeight() / 8 * transform.getScaleY());
+        SPRITES.prepare(pieceSet, width, height, configuration);
+    }
+
+    /**
+     * The position which gets drawn.
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Set the position to draw and repaint the changed squares.
+     * Can be called from any thread (repaints on the EDT).
+     * @param snapshot The position (see Board.snapshot()).
+     */
+    public void setSnapshot(BoardSnapshot snapshot) {
+        if (snapshot == this.snapshot) {
+            return;
+        }
+        this.snapshot = snapshot;
+        if (SwingUtilities.isEventDispatchThread()) {
+            repaintChanges();
+        } else {
+            SwingUtilities.invokeLater(this::repaintChanges);
+        }
     }
 
     public boolean isBlackPov() {
@@ -63,6 +170,21 @@ public class ChessPanel extends JPanel implements MouseListener {
 
     public void setBlackPov(boolean blackPov) {
         this.blackPov = blackPov;
+        repaintAll();
+    }
+
+    public String getPieceSet() {
+        return pieceSet;
+    }
+
+    /**
+     * Set the piece images.
+     * @param pieceSet The name of a set in "/assets/pieces/".
+     */
+    public void setPieceSet(String pieceSet) {
+        this.pieceSet = pieceSet;
+        SPRITES.preload(pieceSet);
+        Arrays.fill(sprites, null);
         repaint();
     }
 
@@ -71,20 +193,61 @@ public class ChessPanel extends JPanel implements MouseListener {
     }
 
     public void setOverlay(Overlay overlay) {
-        this.overlay = overlay;
-        repaint();
+        if (overlay != this.overlay) {
+            this.overlay = overlay;
+            repaint();
+        }
     }
 
     public void removeOverlay() {
-        this.overlay = null;
-        repaint();
+        setOverlay(null);
+    }
+
+    /**
+     * Add an overlay drawn on top of the board (below the overlay)
+     * which does not receive clicks.
+     * @param decoration The overlay to add.
+     */
+    public void addDecoration(Overlay decoration) {
+        if (!decorations.contains(decoration)) {
+            decorations.add(decoration);
+            repaint();
+        }
+    }
+
+    public void removeDecoration(Overlay decoration) {
+        if (decorations.remove(decoration)) {
+            repaint();
+        }
+    }
+
+    /**
+     * The bounds of a square on the panel.
+     * @param file The file (1 to 8).
+     * @param rank The rank (1 to 8).
+     * @return The bounds (swing coordinates).
+     * @throws IllegalArgumentException File or rank out of range.
+     */
+    public Rectangle getSquareBounds(int file, int rank) {
+        Board.checkInBoundsException(file);
+        Board.checkInBoundsException(rank);
+        int row = isBlackPov() ? rank - 1 : 8 - rank;
+        int col = isBlackPov() ? 8 - file : file - 1;
+        int sqWidth = getWidth() / 8;
+        int sqHeight = getHeight() / 8;
+        return new Rectangle(sqWidth * col, sqHeight * row, sqWidth, sqHeight);
     }
 
     /**
      * Removes all board markings.
      */
     public void clearMarkers() {
-        markings.clear();
+        for (int i=0; i<64; i++) {
+            if (markings[i] != null) {
+                markings[i] = null;
+                repaintSquare(i / 8, i % 8);
+            }
+        }
     }
 
     /**
@@ -99,55 +262,153 @@ public class ChessPanel extends JPanel implements MouseListener {
         Board.checkInBoundsException(rank);
         int row = isBlackPov() ? rank - 1 : 8 - rank;
         int col = isBlackPov() ? 8 - file : file - 1;
-        markings.put(row * 1000 + col, marker);
+        if (markings[row * 8 + col] != marker) {
+            markings[row * 8 + col] = marker;
+            repaintSquare(row, col);
+        }
+    }
+
+    /**
+     * Repaint the squares whose pieces changed in the
+     * snapshot (see setSnapshot()) since the last call.
+     */
+    public void repaintChanges() {
+        BoardSnapshot snapshot = this.snapshot;
+        for (int r=0; r<8; r++) {
+            for (int c=0; c<8; c++) {
+                Piece piece = getViewPiece(snapshot, r, c);
+                if (piece != shownPieces[r * 8 + c]) {
+                    shownPieces[r * 8 + c] = piece;
+                    repaintSquare(r, c);
+                }
+            }
+        }
+    }
+
+    private void repaintAll() {
+        BoardSnapshot snapshot = this.snapshot;
+        for (int r=0; r<8; r++) {
+            for (int c=0; c<8; c++) {
+                shownPieces[r * 8 + c] = getViewPiece(snapshot, r, c);
+            }
+        }
+        repaint();
+    }
+
+    private void repaintSquare(int row, int col) {
+        int sqWidth = getWidth() / 8;
+        int sqHeight = getHeight() / 8;
+        repaint(new Rectangle(sqWidth * col, sqHeight * row, sqWidth, sqHeight));
+    }
+
+    private Piece getViewPiece(BoardSnapshot snapshot, int row, int col) {
+        return isBlackPov() ? snapshot.get(8-col, row+1) : snapshot.get(col+1, 8-row);
+    }
+
+    /**
+     * The paint times since the last reset.
+     */
+    public FrameStats getFrameStats() {
+        return new FrameStats(frames, totalFrameNanos, maxFrameNanos, lastFrameNanos);
+    }
+
+    public void resetFrameStats() {
+        frames = 0;
+        totalFrameNanos = 0;
+        maxFrameNanos = 0;
+        lastFrameNanos = 0;
     }
 
     @Override
     protected void paintComponent(Graphics g) {
+        final long start = System.nanoTime();
         Graphics2D g2d = (Graphics2D) g;
 
         final int sqWidth = getWidth() / 8;
         final int sqHeight = getHeight() / 8;
-        int sqWidthRest = getWidth() % 8;
-        int sqHeightReset = getHeight() % 8;
 
-        g2d.setColor(Color.RED);
-        g2d.fillRect(0, 0, getWidth(), getHeight());
+        g2d.drawImage(getBackgroundImage(sqWidth, sqHeight), 0, 0, null);
 
-        g2d.setColor(COLOR_LIGHT);
+        // sprites in device pixels (high dpi screens scale the graphics)
+        int spriteWidth = (int) Math.round(sqWidth * g2d.getTransform().getScaleX());
+        int spriteHeight = (int) Math.round(sqHeight * g2d.getTransform().getScaleY());
+        if (spriteWidth != this.spriteWidth || spriteHeight != this.spriteHeight) {
+            this.spriteWidth = spriteWidth;
+            this.spriteHeight = spriteHeight;
+            Arrays.fill(sprites, null);
+        }
 
-        for (int r=0; r<8; r++) {
-            for (int c=0; c<8; c++) {
+        // only the squares in the repainted region
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstCol = Math.max(0, clip.x / Math.max(1, sqWidth));
+        int lastCol = Math.min(7, (clip.x + clip.width - 1) / Math.max(1, sqWidth));
+        int firstRow = Math.max(0, clip.y / Math.max(1, sqHeight));
+        int lastRow = Math.min(7, (clip.y + clip.height - 1) / Math.max(1, sqHeight));
+
+        for (int r=firstRow; r<=lastRow; r++) {
+            for (int c=firstCol; c<=lastCol; c++) {
                 int sqX = sqWidth * c;
                 int sqY = sqHeight * r;
 
-                g2d.fillRect(sqX, sqY, sqWidth, sqHeight);
-
-                Marker marker = markings.get(r * 1000 + c);
+                Marker marker = markings[r * 8 + c];
                 if (marker != null) {
+                    g2d.setColor((r + c) % 2 == 0 ? COLOR_LIGHT : COLOR_DARK);
                     drawMarking(g2d, marker, sqX, sqY, sqWidth, sqHeight);
                 }
 
-                // System.out.println("sqx: " + sqX + ", sqy: " + sqY + ", sqwidth: " + sqWidth + ", sqheight: " + sqHeight);
-
-                Piece piece = isBlackPov() ?
-                        chessBoard.get(8-c, r+1) :
-                        chessBoard.get(c+1, 8-r);
-
+                Piece piece = shownPieces[r * 8 + c];
                 if (piece != null) {
-                    g2d.drawImage(getPiece(piece), sqX, sqY, sqWidth, sqHeight, null);
+                    BufferedImage sprite = getSprite(piece);
+                    if (spriteWidth == sqWidth && spriteHeight == sqHeight) {
+                        g2d.drawImage(sprite, sqX, sqY, null);
+                    } else {
+                        g2d.drawImage(sprite, sqX, sqY, sqWidth, sqHeight, null);
+                    }
                 }
+            }
+        }
 
-                if (overlay != null) {
-                    Color oldColor = g2d.getColor();
-                    overlay.render(this, g2d);
-                    g2d.setColor(oldColor);
-                }
+        for (Overlay decoration : decorations) {
+            decoration.render(this, g2d);
+        }
+        if (overlay != null) {
+            overlay.render(this, g2d);
+        }
+
+        lastFrameNanos = System.nanoTime() - start;
+        totalFrameNanos += lastFrameNanos;
+        maxFrameNanos = Math.max(maxFrameNanos, lastFrameNanos);
+        frames++;
+    }
 
-                g2d.setColor(g2d.getColor() == COLOR_DARK ? COLOR_LIGHT : COLOR_DARK);
+    /**
+     * The squares without markers and pieces, cached for the current size.
+     */
+    private BufferedImage getBackgroundImage(int sqWidth, int sqHeight) {
+        if (background != null && background.getWidth() == getWidth() && background.getHeight() == getHeight()) {
+            return background;
+        }
+
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        int width = Math.max(1, getWidth());
+        int height = Math.max(1, getHeight());
+        background = configuration != null ? configuration.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g2d = background.createGraphics();
+        g2d.setColor(Color.RED);
+        g2d.fillRect(0, 0, width, height);
+        for (int r=0; r<8; r++) {
+            for (int c=0; c<8; c++) {
+                g2d.setColor((r + c) % 2 == 0 ? COLOR_LIGHT : COLOR_DARK);
+                g2d.fillRect(sqWidth * c, sqHeight * r, sqWidth, sqHeight);
             }
-            g2d.setColor(g2d.getColor() == COLOR_DARK ? COLOR_LIGHT : COLOR_DARK);
         }
+        g2d.dispose();
+        return background;
     }
 
     private void drawMarking(Graphics2D g2d, Marker type, int sqX, int sqY, int sqWidth, int sqHeight) {
@@ -170,27 +431,33 @@ public class ChessPanel extends JPanel implements MouseListener {
     }
 
     /**
-     * Get or load a piece icon.
+     * Get or load a piece icon, unscaled.
      * @param piece The piece to get.
-     * @return The image, can throw an exception.
+     * @return The image.
+     * @throws IllegalArgumentException The piece set does not exist or is corrupted.
      */
     public BufferedImage getPiece(Piece piece) {
-        if (!pieces.containsKey(piece.getId())) {
-            pieces.put(piece.getId(), loadPiece(piece));
-        }
-        return pieces.get(piece.getId());
+        return SPRITES.getSource(pieceSet, piece);
+    }
+
+    /**
+     * Get a piece icon scaled to a size (cached).
+     * @param piece The piece to get.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return The image.
+     * @throws IllegalArgumentException The piece set does not exist or is corrupted.
+     */
+    public BufferedImage getPiece(Piece piece, int width, int height) {
+        return SPRITES.get(pieceSet, piece, width, height, getGraphicsConfiguration());
     }
 
-    private BufferedImage loadPiece(Piece piece) {
-        String resourceName = "/assets/pieces/" + SET_NAME + "/" + piece.getId() + ".png";
-        try {
-            return ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream(resourceName)));
-        } catch (NullPointerException ex) {
-            throw new IllegalArgumentException("Piece set '" + SET_NAME + "' does not exist or is corrupted.", ex);
-        } catch (IOException ex) {
-            // todo: set unable to load flag or something
-            throw new RuntimeException(ex);
+    private BufferedImage getSprite(Piece piece) {
+        int index = SpriteCache.index(piece);
+        if (sprites[index] == null) {
+            sprites[index] = getPiece(piece, spriteWidth, spriteHeight);
         }
+        return sprites[index];
     }
 
     @Override
@@ -0,0 +1,68 @@
+package com.github.bitfexl.javachess.ui;
+
+import java.awt.*;
+
+/**
+ * A bar at the left edge of the board, the white part
+ * grows with the evaluation for white. Use as decoration
+ * (see ChessPanel.addDecoration()).
+ */
+public class EvalBarOverlay implements Overlay {
+    private static final Color WHITE = new Color(255, 255, 255, 200);
+    private static final Color BLACK = new Color(0, 0, 0, 200);
+
+    // centipawns at which the bar is about 3/4 white
+    private static final double SCALE = 400;
+
+    private volatile int score;
+
+    private volatile boolean mate;
+
+    /**
+     * Set the evaluation.
+     * @param score The score in centipawns from the view of white.
+     * @param mate true: forced mate (sign of score: for whom), false: centipawns;
+     */
+    public void setScore(int score, boolean mate) {
+        this.score = score;
+        this.mate = mate;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isMate() {
+        return mate;
+    }
+
+    /**
+     * The part of the bar for white (0 to 1).
+     */
+    public double getWhiteShare() {
+        if (mate) {
+            return score > 0 ? 1 : 0;
+        }
+        return 1 / (1 + Math.exp(-score * Math.log(3) / SCALE));
+    }
+
+    @Override
+    public void render(ChessPanel panel, Graphics2D g2d) {
+        int width = Math.max(4, panel.getWidth() / 40);
+        int height = panel.getHeight();
+        int white = (int) Math.round(height * getWhiteShare());
+
+        // white at the bottom from the view of white
+        g2d.setColor(BLACK);
+        g2d.fillRect(0, 0, width, height);
+        g2d.setColor(WHITE);
+        if (panel.isBlackPov()) {
+            g2d.fillRect(0, 0, width, white);
+        } else {
+            g2d.fillRect(0, height - white, width, white);
+        }
+    }
+
+    @Override
+    public void clicked(ChessPanel panel, int x, int y) { }
+}
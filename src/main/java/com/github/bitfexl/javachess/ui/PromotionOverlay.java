@@ -46,11 +46,9 @@ public abstract class PromotionOverlay implements Overlay {
                     pWidth
             );
             g2d.drawImage(
-                    panel.getPiece(pieces.get(i)),
+                    panel.getPiece(pieces.get(i), pWidth - padding*2, pWidth - padding*2),
                     xOrigin + pWidth*i + padding,
                     yOrigin + padding,
-                    pWidth - padding*2,
-                    pWidth - padding*2,
                     null
             );
         }
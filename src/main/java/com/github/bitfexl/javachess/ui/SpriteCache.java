@@ -0,0 +1,224 @@
+package com.github.bitfexl.javachess.ui;
+
+import com.github.bitfexl.javachess.game.Color;
+import com.github.bitfexl.javachess.pieces.Piece;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Piece images of the piece sets in "/assets/pieces/", scaled to the
+ * requested size once and stored as images compatible with the screen.
+ * Scaled images are evicted least recently used (across sizes and sets).
+ * The images of a set are loaded once, preload() loads them in the
+ * background. Thread safe.
+ */
+public class SpriteCache {
+    /**
+     * Scaled images kept by default, 8 sizes of a set.
+     */
+    public static final int DEFAULT_CAPACITY = 8 * 2 * Piece.TYPE_COUNT;
+
+    // loads and scales in the background, daemon threads
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sprite-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int capacity;
+
+    // set name -> images by index(), as loaded
+    private final Map<String, CompletableFuture<BufferedImage[]>> sources = new ConcurrentHashMap<>();
+
+    // set ids used in the keys of scaled, see key()
+    private final Map<String, Integer> setIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSetId = new AtomicInteger();
+
+    // access ordered, guarded by itself
+    private final LinkedHashMap<Long, BufferedImage> scaled;
+
+    public SpriteCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Init a cache.
+     * @param capacity The number of scaled images to keep.
+     */
+    public SpriteCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.scaled = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+                return size() > SpriteCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * The index of a piece in a set (color and type).
+     */
+    public static int index(Piece piece) {
+        return piece.getColor().ordinal() * Piece.TYPE_COUNT + piece.getType();
+    }
+
+    /**
+     * Load the images of a set in the background.
+     * @param set The name of the set (e.g. "standard").
+     * @return Completes when the images are loaded.
+     */
+    public CompletableFuture<Void> preload(String set) {
+        return load(set).thenAccept(images -> { });
+    }
+
+    /**
+     * Load a set and scale it to a size in the background (e.g. after a resize).
+     * @param set The name of the set.
+     * @param width The width of the images.
+     * @param height The height of the images.
+     * @param configuration The configuration to create compatible images for, may be null.
+     * @return Completes when the images are scaled.
+     */
+    public CompletableFuture<Void> prepare(String set, int width, int height, GraphicsConfiguration configuration) {
+        return load(set).thenAcceptAsync(images -> {
+            for (int i=0; i<images.length; i++) {
+                get(set, i, width, height, configuration);
+            }
+        }, LOADER);
+    }
+
+    /**
+     * The image of a piece, unscaled.
+     * @param set The name of the set.
+     * @param piece The piece.
+     * @return The image.
+     * @throws IllegalArgumentException The set does not exist or is corrupted.
+     */
+    public BufferedImage getSource(String set, Piece piece) {
+        return sources(set)[index(piece)];
+    }
+
+    /**
+     * The image of a piece, scaled.
+     * Loads the set and scales the image if it is not cached.
+     * @param set The name of the set.
+     * @param piece The piece.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param configuration The configuration to create compatible images for, may be null.
+     * @return The image.
+     * @throws IllegalArgumentException The set does not exist or is corrupted.
+     */
+    public BufferedImage get(String set, Piece piece, int width, int height, GraphicsConfiguration configuration) {
+        return get(set, index(piece), width, height, configuration);
+    }
+
+    private BufferedImage get(String set, int index, int width, int height, GraphicsConfiguration configuration) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        long key = key(set, index, width, height);
+
+        synchronized (scaled) {
+            BufferedImage image = scaled.get(key);
+            if (image != null) {
+                return image;
+            }
+        }
+
+        // scale outside the lock, a concurrent duplicate is harmless
+        BufferedImage image = scale(sources(set)[index], width, height, configuration);
+        synchronized (scaled) {
+            scaled.putIfAbsent(key, image);
+            return scaled.get(key);
+        }
+    }
+
+    /**
+     * The number of scaled images currently cached.
+     */
+    public int size() {
+        synchronized (scaled) {
+            return scaled.size();
+        }
+    }
+
+    private long key(String set, int index, int width, int height) {
+        int id = setIds.computeIfAbsent(set, name -> nextSetId.getAndIncrement());
+        return (long) id << 40 | (long) index << 32 | (long) width << 16 | height;
+    }
+
+    private BufferedImage[] sources(String set) {
+        try {
+            return load(set).join();
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private CompletableFuture<BufferedImage[]> load(String set) {
+        return sources.computeIfAbsent(set, name -> CompletableFuture.supplyAsync(() -> read(name), LOADER));
+    }
+
+    private BufferedImage[] read(String set) {
+        BufferedImage[] images = new BufferedImage[2 * Piece.TYPE_COUNT];
+        for (Color color : Color.values()) {
+            for (int type=Piece.PAWN; type<=Piece.KING; type++) {
+                Piece piece = Piece.of(type, color);
+                String resourceName = "/assets/pieces/" + set + "/" + piece.getId() + ".png";
+                try (InputStream in = getClass().getResourceAsStream(resourceName)) {
+                    if (in == null) {
+                        throw new IllegalArgumentException("Piece set '" + set + "' does not exist or is corrupted.");
+                    }
+                    images[index(piece)] = ImageIO.read(in);
+                    if (images[index(piece)] == null) {
+                        throw new IllegalArgumentException("Piece set '" + set + "' does not exist or is corrupted.");
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        }
+        return images;
+    }
+
+    /**
+     * Scale an image, halving steps first when shrinking a lot (better quality than a single step).
+     */
+    private static BufferedImage scale(BufferedImage source, int width, int height, GraphicsConfiguration configuration) {
+        BufferedImage image = source;
+        while (image.getWidth() / 2 >= width && image.getHeight() / 2 >= height) {
+            image = draw(image, image.getWidth() / 2, image.getHeight() / 2, null);
+        }
+        return draw(image, width, height, configuration);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, GraphicsConfiguration configuration) {
+        BufferedImage image = configuration != null
+                ? configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return image;
+    }
+}
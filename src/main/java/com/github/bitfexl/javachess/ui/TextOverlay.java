@@ -14,6 +14,11 @@ public class TextOverlay implements Overlay {
      */
     private Rectangle2D fontBounds;
 
+    // font of the last render, kept while width and text stay the same
+    private Font font;
+    private int fontWidth;
+    private String fontText;
+
     public TextOverlay(String text) {
         this.text = text;
     }
@@ -44,6 +49,16 @@ public class TextOverlay implements Overlay {
     }
 
     private Font getFontForWidth(int width, FontRenderContext fontRenderContext) {
+        if (font != null && width == fontWidth && text.equals(fontText)) {
+            return font;
+        }
+        font = deriveFontForWidth(width, fontRenderContext);
+        fontWidth = width;
+        fontText = text;
+        return font;
+    }
+
+    private Font deriveFontForWidth(int width, FontRenderContext fontRenderContext) {
         Font newFont = null;
         for (int d=0; d<20; d++) {
             newFont = FONT.deriveFont((float)FONT.getSize() + d);